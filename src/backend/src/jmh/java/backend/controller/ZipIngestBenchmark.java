@@ -0,0 +1,60 @@
+package backend.controller;
+
+import backend.vectorize.GlyphCorpus;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a glyph upload the way {@link FontProcessingService} does: entry by entry from a
+ * {@link ZipInputStream}, keeping the bytes of every {@code glyph_X.png} entry in memory.
+ * This is the part of the ingest stage that replaced extracting the ZIP to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ZipIngestBenchmark {
+
+    private static final int GLYPHS = 40;
+
+    @Param({"512", "1080", "2000"})
+    public int canvasSize;
+
+    private byte[] upload;
+
+    @Setup
+    public void createUpload() {
+        upload = GlyphCorpus.zip(canvasSize, GLYPHS);
+    }
+
+    @Benchmark
+    public long readGlyphEntries() throws IOException {
+        long bytes = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(upload))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || FontProcessingService.codepointOf(entry.getName()) < 0) {
+                    continue;
+                }
+                bytes += zip.readAllBytes().length;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,106 @@
+package backend.vectorize;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.imageio.ImageIO;
+
+/**
+ * Synthetic, deterministic glyph images for the benchmarks.
+ *
+ * Each glyph is a few thick pen strokes (and sometimes a closed loop, giving the glyph a hole)
+ * drawn in black on a white canvas, placed off-centre with a margin on every side, the way the
+ * Android client exports hand-drawn characters. Shapes are drawn rather than rendered from a
+ * font, so the corpus does not depend on the fonts installed on the machine.
+ */
+public final class GlyphCorpus {
+
+    private GlyphCorpus() {
+    }
+
+    /**
+     * Draws one glyph.
+     *
+     * @param canvasSize Width and height of the canvas
+     * @param index Selects the shape; the same index always gives the same image
+     * @return An ARGB image with a white background
+     */
+    public static BufferedImage render(int canvasSize, int index) {
+        Random random = new Random(31L * canvasSize + index);
+        BufferedImage image = new BufferedImage(canvasSize, canvasSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, canvasSize, canvasSize);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.BLACK);
+            g.setStroke(new BasicStroke(canvasSize / 28f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+            // The glyph covers 40-60% of the canvas, somewhere inside a 15% margin
+            double box = canvasSize * (0.4 + 0.2 * random.nextDouble());
+            double x0 = canvasSize * 0.15 + random.nextDouble() * (canvasSize * 0.7 - box);
+            double y0 = canvasSize * 0.15 + random.nextDouble() * (canvasSize * 0.7 - box);
+            int strokes = 2 + random.nextInt(3);
+            for (int i = 0; i < strokes; i++) {
+                g.draw(new CubicCurve2D.Double(
+                    x0 + random.nextDouble() * box, y0 + random.nextDouble() * box,
+                    x0 + random.nextDouble() * box, y0 + random.nextDouble() * box,
+                    x0 + random.nextDouble() * box, y0 + random.nextDouble() * box,
+                    x0 + random.nextDouble() * box, y0 + random.nextDouble() * box));
+            }
+            if (random.nextBoolean()) {
+                double loop = box * 0.4;
+                g.draw(new Ellipse2D.Double(x0 + box * 0.3, y0 + box * 0.3, loop, loop * 0.8));
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * @param image A glyph image
+     * @return The image encoded as PNG
+     */
+    public static byte[] png(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds an upload ZIP in the client's format: one {@code glyph_<codepoint>.png} entry per
+     * glyph, starting at '!'.
+     *
+     * @param canvasSize Width and height of every glyph canvas
+     * @param glyphs Number of glyphs
+     * @return The ZIP file contents
+     */
+    public static byte[] zip(int canvasSize, int glyphs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < glyphs; i++) {
+                zip.putNextEntry(new ZipEntry("glyph_" + ('!' + i) + ".png"));
+                zip.write(png(render(canvasSize, i)));
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+package backend.vectorize;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raster hot paths of the glyph stage, on images decoded from PNG as in production:
+ * - {@code contentBounds}: the whitespace trim
+ * - {@code fromImage}: trim plus thresholding into a packed bitmap
+ * - {@code toBmp} / {@code toPbm}: encoding a bitmap for Potrace (file and pipe mode)
+ * - {@code pngToBmp}: the whole conversion from an uploaded PNG to the BMP handed to Potrace
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GlyphRasterBenchmark {
+
+    private static final int GLYPHS = 8;
+
+    @Param({"512", "1080", "2000"})
+    public int canvasSize;
+
+    private byte[][] pngs;
+    private BufferedImage[] images;
+    private GlyphBitmap[] bitmaps;
+    private int next;
+
+    @Setup
+    public void createCorpus() throws IOException {
+        pngs = new byte[GLYPHS][];
+        images = new BufferedImage[GLYPHS];
+        bitmaps = new GlyphBitmap[GLYPHS];
+        for (int i = 0; i < GLYPHS; i++) {
+            pngs[i] = GlyphCorpus.png(GlyphCorpus.render(canvasSize, i));
+            images[i] = ImageIO.read(new ByteArrayInputStream(pngs[i]));
+            bitmaps[i] = GlyphBitmap.fromImage(images[i]);
+        }
+    }
+
+    private int nextGlyph() {
+        next = (next + 1) % GLYPHS;
+        return next;
+    }
+
+    @Benchmark
+    public Rectangle contentBounds() {
+        return GlyphRaster.contentBounds(images[nextGlyph()]);
+    }
+
+    @Benchmark
+    public GlyphBitmap fromImage() {
+        return GlyphBitmap.fromImage(images[nextGlyph()]);
+    }
+
+    @Benchmark
+    public byte[] toBmp() {
+        return PotraceVectorizer.toBmp(bitmaps[nextGlyph()]);
+    }
+
+    @Benchmark
+    public byte[] toPbm() {
+        return PotraceVectorizer.toPbm(bitmaps[nextGlyph()]);
+    }
+
+    @Benchmark
+    public byte[] pngToBmp() throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(pngs[nextGlyph()]));
+        return PotraceVectorizer.toBmp(GlyphBitmap.fromImage(image));
+    }
+}
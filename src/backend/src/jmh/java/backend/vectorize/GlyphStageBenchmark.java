@@ -0,0 +1,65 @@
+package backend.vectorize;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The full per-glyph stage as run by each glyph worker: PNG decode, trim and threshold, and
+ * tracing. Tracing uses the in-process {@link ContourTracingVectorizer}, so the numbers do not
+ * include Potrace process start-up; {@code decode} isolates the image decoding share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GlyphStageBenchmark {
+
+    private static final int GLYPHS = 8;
+
+    @Param({"512", "1080", "2000"})
+    public int canvasSize;
+
+    private final GlyphVectorizer vectorizer = new ContourTracingVectorizer();
+    private byte[][] pngs;
+    private int next;
+
+    @Setup
+    public void createCorpus() {
+        pngs = new byte[GLYPHS][];
+        for (int i = 0; i < GLYPHS; i++) {
+            pngs[i] = GlyphCorpus.png(GlyphCorpus.render(canvasSize, i));
+        }
+    }
+
+    private byte[] nextPng() {
+        next = (next + 1) % GLYPHS;
+        return pngs[next];
+    }
+
+    @Benchmark
+    public BufferedImage decode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(nextPng()));
+    }
+
+    @Benchmark
+    public GlyphOutline glyphStage() throws IOException, InterruptedException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(nextPng()));
+        return vectorizer.vectorize(GlyphBitmap.fromImage(image), null, "glyph");
+    }
+}
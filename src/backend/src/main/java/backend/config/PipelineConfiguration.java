@@ -0,0 +1,128 @@
+package backend.config;
+
+import backend.font.FontAssembler;
+import backend.font.FontForgeAssembler;
+import backend.font.FontForgeWorkerPool;
+import backend.font.NativeFontAssembler;
+import backend.pipeline.ArchiveWriter;
+import backend.pipeline.FontJobExecutor;
+import backend.pipeline.FontResultCache;
+import backend.pipeline.SubsetCache;
+import backend.vectorize.CachingGlyphVectorizer;
+import backend.vectorize.ContourTracingVectorizer;
+import backend.vectorize.GlyphVectorizer;
+import backend.vectorize.OutlineCache;
+import backend.vectorize.PotraceVectorizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the pluggable font pipeline stages selected in {@link ProcessingConfiguration}.
+ *
+ * {@code processing.vectorizer}:
+ * - {@code potrace} (default): traces each glyph with the external Potrace executable, over
+ *   stdin/stdout or through BMP/SVG files depending on {@code processing.potrace-mode}
+ * - {@code java}: traces each glyph in-process, avoiding one subprocess per glyph
+ * Either way, traced outlines are reused from the {@link OutlineCache} unless
+ * {@code processing.outline-cache-entries=0}.
+ *
+ * {@code processing.font-assembler}:
+ * - {@code fontforge} (default): builds the TTF with the FontForge script, on a pool of
+ *   resident FontForge workers (one per concurrent job) unless
+ *   {@code processing.fontforge-resident-workers=false}
+ * - {@code java}: writes the TTF in-process, without starting FontForge
+ *
+ * Finished fonts are kept in the {@link FontResultCache} unless
+ * {@code processing.font-cache-max-mb=0}, and font subsets in the {@link SubsetCache} unless
+ * {@code processing.subset-cache-max-mb=0}. The glyph images and outlines of every job are
+ * packed in the background by the {@link ArchiveWriter} unless
+ * {@code storage.archive-queue-capacity=0}.
+ *
+ * Font jobs run on the {@link FontJobExecutor} named {@value #FONT_JOB_EXECUTOR}, sized by
+ * {@code processing.max-concurrent-jobs} and {@code processing.job-queue-capacity}.
+ */
+@Configuration
+public class PipelineConfiguration {
+
+    /** Bean name of the font job executor, referenced by {@code @Async}. */
+    public static final String FONT_JOB_EXECUTOR = "fontJobExecutor";
+
+    /** Spill directory of the outline cache, inside the storage directory. */
+    private static final String OUTLINE_CACHE_DIRECTORY = "outline-cache";
+    /** Directory of the font result cache, inside the storage directory. */
+    private static final String FONT_CACHE_DIRECTORY = "font-cache";
+
+    @Bean
+    public GlyphVectorizer glyphVectorizer(ProcessingConfiguration config, OutlineCache outlineCache) {
+        GlyphVectorizer vectorizer;
+        if (ProcessingConfiguration.VECTORIZER_JAVA.equals(config.getProcessingVectorizer())) {
+            vectorizer = new ContourTracingVectorizer();
+        } else {
+            vectorizer = new PotraceVectorizer(config.getResolvedPotracePath(),
+                ProcessingConfiguration.POTRACE_MODE_PIPE.equals(config.getProcessingPotraceMode()),
+                TimeUnit.SECONDS.toMillis(config.getProcessingGlyphTimeoutSeconds()));
+        }
+        if (config.getProcessingOutlineCacheEntries() == 0) {
+            return vectorizer;
+        }
+        return new CachingGlyphVectorizer(vectorizer, outlineCache);
+    }
+
+    @Bean
+    public OutlineCache outlineCache(ProcessingConfiguration config) {
+        File spillDir = config.getStorageDirectory() != null
+            ? new File(config.getStorageDirectory(), OUTLINE_CACHE_DIRECTORY)
+            : null;
+        return new OutlineCache(config.getProcessingOutlineCacheEntries(), spillDir,
+            config.getProcessingOutlineCacheSpillMb() * 1024L * 1024L);
+    }
+
+    @Bean
+    public FontResultCache fontResultCache(ProcessingConfiguration config) {
+        File directory = config.getStorageDirectory() != null
+            ? new File(config.getStorageDirectory(), FONT_CACHE_DIRECTORY)
+            : null;
+        return new FontResultCache(directory, config.getProcessingFontCacheMaxMb() * 1024L * 1024L,
+            TimeUnit.HOURS.toMillis(config.getProcessingFontCacheMaxAgeHours()));
+    }
+
+    @Bean
+    public SubsetCache subsetCache(ProcessingConfiguration config) {
+        return new SubsetCache(config.getProcessingSubsetCacheMaxMb() * 1024L * 1024L);
+    }
+
+    @Bean
+    public ArchiveWriter archiveWriter(ProcessingConfiguration config) {
+        return new ArchiveWriter(config.getStorageArchiveQueueCapacity());
+    }
+
+    @Bean(FONT_JOB_EXECUTOR)
+    public FontJobExecutor fontJobExecutor(ProcessingConfiguration config) {
+        return new FontJobExecutor(config.getProcessingMaxConcurrentJobs(), config.getProcessingJobQueueCapacity());
+    }
+
+    @Bean
+    public FontAssembler fontAssembler(ProcessingConfiguration config, MeterRegistry registry) {
+        if (ProcessingConfiguration.FONT_ASSEMBLER_JAVA.equals(config.getProcessingFontAssembler())) {
+            return new NativeFontAssembler();
+        }
+        FontForgeWorkerPool workerPool = null;
+        if (config.isProcessingFontforgeResidentWorkers()) {
+            workerPool = new FontForgeWorkerPool(
+                config.getResolvedFontforgePath(),
+                config.getProcessingMaxConcurrentJobs(),
+                config.getProcessingFontforgeWorkerMaxJobs(),
+                config.getProcessingFontforgeWorkerHealthCheckSeconds(),
+                config.getProcessingStageTimeoutSeconds());
+            Gauge.builder("font.fontforge.workers", workerPool, FontForgeWorkerPool::getLiveWorkers)
+                .description("Resident FontForge worker processes")
+                .register(registry);
+        }
+        return new FontForgeAssembler(config.getResolvedFontforgePath(), workerPool,
+            TimeUnit.SECONDS.toMillis(config.getProcessingStageTimeoutSeconds()));
+    }
+}
@@ -1,6 +1,6 @@
 package backend.config;
 
-import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
@@ -24,29 +24,98 @@ import java.util.List;
  * - Validation of tool availability
  * - Configuration property binding
  * 
+ * Properties are injected with {@code @Value} because the dotted keys in application.properties
+ * (e.g. {@code processing.max-concurrent-jobs}) do not map onto the flat field names of this class
+ * under relaxed binding.
+ * 
  * @author TextToHandwriting Team
  * @version 1.0
  * @since 2024-01-15
  */
 @Configuration
-@ConfigurationProperties(prefix = "")
 @Component
 public class ProcessingConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(ProcessingConfiguration.class);
+
+    /** Glyph vectorizer that runs the external Potrace executable. */
+    public static final String VECTORIZER_POTRACE = "potrace";
+    /** Glyph vectorizer that traces in-process, without any external executable. */
+    public static final String VECTORIZER_JAVA = "java";
+    /** Potrace mode that streams PBM/SVG over stdin/stdout. */
+    public static final String POTRACE_MODE_PIPE = "pipe";
+    /** Potrace mode that writes a BMP and reads an SVG file per glyph. */
+    public static final String POTRACE_MODE_FILE = "file";
+    /** Font assembler that runs the FontForge script. */
+    public static final String FONT_ASSEMBLER_FONTFORGE = "fontforge";
+    /** Font assembler that writes the TTF in-process, without any external executable. */
+    public static final String FONT_ASSEMBLER_JAVA = "java";
     
     // Configuration properties from application.properties
+    @Value("${fontforge.path:auto}")
     private String fontforgePath = "auto";
+    @Value("${potrace.path:auto}")
     private String potracePath = "auto";
+    @Value("${storage.directory:#{null}}")
     private String storageDirectory;
+    @Value("${storage.temp-directory:#{null}}")
     private String storageTempDirectory;
+    @Value("${storage.cleanup-on-startup:true}")
     private boolean storageCleanupOnStartup = true;
+    @Value("${storage.temp-sweep-minutes:10}")
+    private int storageTempSweepMinutes = 10;
+    @Value("${storage.archive-queue-capacity:32}")
+    private int storageArchiveQueueCapacity = 32;
+    @Value("${storage.max-mb:5120}")
+    private long storageMaxMb = 5120;
+    @Value("${storage.max-age-hours:720}")
+    private int storageMaxAgeHours = 720;
+    @Value("${storage.sweep-minutes:10}")
+    private int storageSweepMinutes = 10;
     
     // Processing configuration
+    @Value("${processing.max-concurrent-jobs:3}")
     private int processingMaxConcurrentJobs = 3;
+    @Value("${processing.timeout-seconds:300}")
     private int processingTimeoutSeconds = 300;
+    @Value("${processing.image-min-size:50}")
     private int processingImageMinSize = 50;
+    @Value("${processing.image-max-size:2000}")
     private int processingImageMaxSize = 2000;
+    @Value("${processing.glyph-threads:0}")
+    private int processingGlyphThreads = 0;
+    @Value("${processing.glyph-parallelism-per-job:0}")
+    private int processingGlyphParallelismPerJob = 0;
+    @Value("${processing.vectorizer:potrace}")
+    private String processingVectorizer = VECTORIZER_POTRACE;
+    @Value("${processing.potrace-mode:pipe}")
+    private String processingPotraceMode = POTRACE_MODE_PIPE;
+    @Value("${processing.font-assembler:fontforge}")
+    private String processingFontAssembler = FONT_ASSEMBLER_FONTFORGE;
+    @Value("${processing.fontforge-resident-workers:true}")
+    private boolean processingFontforgeResidentWorkers = true;
+    @Value("${processing.fontforge-worker-max-jobs:50}")
+    private int processingFontforgeWorkerMaxJobs = 50;
+    @Value("${processing.fontforge-worker-health-check-seconds:30}")
+    private int processingFontforgeWorkerHealthCheckSeconds = 30;
+    @Value("${processing.outline-cache-entries:5000}")
+    private int processingOutlineCacheEntries = 5000;
+    @Value("${processing.outline-cache-spill-mb:256}")
+    private int processingOutlineCacheSpillMb = 256;
+    @Value("${processing.font-cache-max-mb:512}")
+    private int processingFontCacheMaxMb = 512;
+    @Value("${processing.font-cache-max-age-hours:168}")
+    private int processingFontCacheMaxAgeHours = 168;
+    @Value("${processing.subset-cache-max-mb:32}")
+    private int processingSubsetCacheMaxMb = 32;
+    @Value("${processing.job-queue-capacity:20}")
+    private int processingJobQueueCapacity = 20;
+    @Value("${processing.job-retention-minutes:60}")
+    private int processingJobRetentionMinutes = 60;
+    @Value("${processing.stage-timeout-seconds:120}")
+    private int processingStageTimeoutSeconds = 120;
+    @Value("${processing.glyph-timeout-seconds:30}")
+    private int processingGlyphTimeoutSeconds = 30;
     
     // Resolved paths
     private String resolvedFontforgePath;
@@ -60,8 +129,30 @@ public class ProcessingConfiguration {
     public void initialize() {
         logger.info("Initializing ProcessingConfiguration...");
         
-        resolvedFontforgePath = resolveFontforgePath();
-        resolvedPotracePath = resolvePotracePath();
+        if (!VECTORIZER_POTRACE.equals(processingVectorizer) && !VECTORIZER_JAVA.equals(processingVectorizer)) {
+            logger.warn("Unknown vectorizer: {}. Using default: {}", processingVectorizer, VECTORIZER_POTRACE);
+            processingVectorizer = VECTORIZER_POTRACE;
+        }
+        
+        if (!POTRACE_MODE_PIPE.equals(processingPotraceMode) && !POTRACE_MODE_FILE.equals(processingPotraceMode)) {
+            logger.warn("Unknown Potrace mode: {}. Using default: {}", processingPotraceMode, POTRACE_MODE_PIPE);
+            processingPotraceMode = POTRACE_MODE_PIPE;
+        }
+        
+        if (!FONT_ASSEMBLER_FONTFORGE.equals(processingFontAssembler) && !FONT_ASSEMBLER_JAVA.equals(processingFontAssembler)) {
+            logger.warn("Unknown font assembler: {}. Using default: {}", processingFontAssembler, FONT_ASSEMBLER_FONTFORGE);
+            processingFontAssembler = FONT_ASSEMBLER_FONTFORGE;
+        }
+        
+        // FontForge is only required when it is the selected font assembler
+        if (FONT_ASSEMBLER_FONTFORGE.equals(processingFontAssembler)) {
+            resolvedFontforgePath = resolveFontforgePath();
+        }
+        
+        // Potrace is only required when it is the selected vectorizer
+        if (VECTORIZER_POTRACE.equals(processingVectorizer)) {
+            resolvedPotracePath = resolvePotracePath();
+        }
         
         validateConfiguration();
         createDirectories();
@@ -69,6 +160,8 @@ public class ProcessingConfiguration {
         logger.info("Configuration initialized successfully");
         logger.info("FontForge path: {}", resolvedFontforgePath);
         logger.info("Potrace path: {}", resolvedPotracePath);
+        logger.info("Glyph vectorizer: {}", processingVectorizer);
+        logger.info("Font assembler: {}", processingFontAssembler);
         logger.info("Storage directory: {}", storageDirectory);
     }
 
@@ -213,11 +306,11 @@ public class ProcessingConfiguration {
      * Validates the overall configuration and logs any potential issues.
      */
     private void validateConfiguration() {
-        if (resolvedFontforgePath == null) {
+        if (resolvedFontforgePath == null && FONT_ASSEMBLER_FONTFORGE.equals(processingFontAssembler)) {
             logger.error("FontForge path validation failed");
         }
         
-        if (resolvedPotracePath == null) {
+        if (resolvedPotracePath == null && VECTORIZER_POTRACE.equals(processingVectorizer)) {
             logger.error("Potrace path validation failed");
         }
         
@@ -230,6 +323,98 @@ public class ProcessingConfiguration {
             logger.warn("Invalid timeout setting: {}. Using default: 300", processingTimeoutSeconds);
             processingTimeoutSeconds = 300;
         }
+        
+        if (processingFontforgeWorkerMaxJobs <= 0) {
+            logger.warn("Invalid FontForge worker max jobs setting: {}. Using default: 50", processingFontforgeWorkerMaxJobs);
+            processingFontforgeWorkerMaxJobs = 50;
+        }
+        
+        if (processingFontforgeWorkerHealthCheckSeconds <= 0) {
+            logger.warn("Invalid FontForge worker health check interval: {}. Using default: 30", processingFontforgeWorkerHealthCheckSeconds);
+            processingFontforgeWorkerHealthCheckSeconds = 30;
+        }
+        
+        if (processingOutlineCacheEntries < 0) {
+            logger.warn("Invalid outline cache size: {}. Using default: 5000", processingOutlineCacheEntries);
+            processingOutlineCacheEntries = 5000;
+        }
+        
+        if (processingOutlineCacheSpillMb < 0) {
+            logger.warn("Invalid outline cache spill limit: {}. Using default: 256", processingOutlineCacheSpillMb);
+            processingOutlineCacheSpillMb = 256;
+        }
+        
+        if (processingFontCacheMaxMb < 0) {
+            logger.warn("Invalid font cache size limit: {}. Using default: 512", processingFontCacheMaxMb);
+            processingFontCacheMaxMb = 512;
+        }
+        
+        if (processingFontCacheMaxAgeHours <= 0) {
+            logger.warn("Invalid font cache max age: {}. Using default: 168", processingFontCacheMaxAgeHours);
+            processingFontCacheMaxAgeHours = 168;
+        }
+        
+        if (processingJobQueueCapacity <= 0) {
+            logger.warn("Invalid job queue capacity: {}. Using default: 20", processingJobQueueCapacity);
+            processingJobQueueCapacity = 20;
+        }
+        
+        if (processingJobRetentionMinutes <= 0) {
+            logger.warn("Invalid job retention: {}. Using default: 60", processingJobRetentionMinutes);
+            processingJobRetentionMinutes = 60;
+        }
+        
+        if (processingStageTimeoutSeconds <= 0 || processingStageTimeoutSeconds > processingTimeoutSeconds) {
+            logger.warn("Invalid stage timeout: {}. Using job timeout: {}", processingStageTimeoutSeconds, processingTimeoutSeconds);
+            processingStageTimeoutSeconds = processingTimeoutSeconds;
+        }
+        
+        if (processingGlyphTimeoutSeconds <= 0) {
+            logger.warn("Invalid glyph timeout: {}. Using default: 30", processingGlyphTimeoutSeconds);
+            processingGlyphTimeoutSeconds = 30;
+        }
+        
+        if (storageArchiveQueueCapacity < 0) {
+            logger.warn("Invalid archive queue capacity: {}. Using default: 32", storageArchiveQueueCapacity);
+            storageArchiveQueueCapacity = 32;
+        } else if (storageArchiveQueueCapacity == 0) {
+            logger.warn("Archive queue capacity is 0: job archives are not written and incremental rebuilds are disabled");
+        }
+        
+        if (storageTempSweepMinutes < 0) {
+            logger.warn("Invalid temp sweep interval: {}. Using default: 10", storageTempSweepMinutes);
+            storageTempSweepMinutes = 10;
+        }
+        
+        if (storageMaxMb < 0) {
+            logger.warn("Invalid storage quota: {} MB. Using default: 5120", storageMaxMb);
+            storageMaxMb = 5120;
+        }
+        
+        if (storageMaxAgeHours < 0) {
+            logger.warn("Invalid storage max age: {}h. Using default: 720", storageMaxAgeHours);
+            storageMaxAgeHours = 720;
+        }
+        
+        if (storageSweepMinutes <= 0) {
+            logger.warn("Invalid storage sweep interval: {}. Using default: 10", storageSweepMinutes);
+            storageSweepMinutes = 10;
+        }
+        
+        if (processingSubsetCacheMaxMb < 0) {
+            logger.warn("Invalid subset cache size limit: {}. Using default: 32", processingSubsetCacheMaxMb);
+            processingSubsetCacheMaxMb = 32;
+        }
+        
+        // The glyph pool is the global core budget shared by every running job
+        if (processingGlyphThreads <= 0) {
+            processingGlyphThreads = Runtime.getRuntime().availableProcessors();
+        }
+        
+        // A single job may not occupy more glyph workers than the pool has
+        if (processingGlyphParallelismPerJob <= 0 || processingGlyphParallelismPerJob > processingGlyphThreads) {
+            processingGlyphParallelismPerJob = processingGlyphThreads;
+        }
     }
 
     /**
@@ -346,4 +531,180 @@ public class ProcessingConfiguration {
     public void setProcessingImageMaxSize(int processingImageMaxSize) {
         this.processingImageMaxSize = processingImageMaxSize;
     }
+
+    public int getProcessingGlyphThreads() {
+        return processingGlyphThreads;
+    }
+
+    public void setProcessingGlyphThreads(int processingGlyphThreads) {
+        this.processingGlyphThreads = processingGlyphThreads;
+    }
+
+    public int getProcessingGlyphParallelismPerJob() {
+        return processingGlyphParallelismPerJob;
+    }
+
+    public void setProcessingGlyphParallelismPerJob(int processingGlyphParallelismPerJob) {
+        this.processingGlyphParallelismPerJob = processingGlyphParallelismPerJob;
+    }
+
+    public String getProcessingVectorizer() {
+        return processingVectorizer;
+    }
+
+    public void setProcessingVectorizer(String processingVectorizer) {
+        this.processingVectorizer = processingVectorizer;
+    }
+
+    public String getProcessingFontAssembler() {
+        return processingFontAssembler;
+    }
+
+    public void setProcessingFontAssembler(String processingFontAssembler) {
+        this.processingFontAssembler = processingFontAssembler;
+    }
+
+    public boolean isProcessingFontforgeResidentWorkers() {
+        return processingFontforgeResidentWorkers;
+    }
+
+    public void setProcessingFontforgeResidentWorkers(boolean processingFontforgeResidentWorkers) {
+        this.processingFontforgeResidentWorkers = processingFontforgeResidentWorkers;
+    }
+
+    public int getProcessingFontforgeWorkerMaxJobs() {
+        return processingFontforgeWorkerMaxJobs;
+    }
+
+    public void setProcessingFontforgeWorkerMaxJobs(int processingFontforgeWorkerMaxJobs) {
+        this.processingFontforgeWorkerMaxJobs = processingFontforgeWorkerMaxJobs;
+    }
+
+    public int getProcessingFontforgeWorkerHealthCheckSeconds() {
+        return processingFontforgeWorkerHealthCheckSeconds;
+    }
+
+    public void setProcessingFontforgeWorkerHealthCheckSeconds(int processingFontforgeWorkerHealthCheckSeconds) {
+        this.processingFontforgeWorkerHealthCheckSeconds = processingFontforgeWorkerHealthCheckSeconds;
+    }
+
+    public String getProcessingPotraceMode() {
+        return processingPotraceMode;
+    }
+
+    public void setProcessingPotraceMode(String processingPotraceMode) {
+        this.processingPotraceMode = processingPotraceMode;
+    }
+
+    public int getProcessingOutlineCacheEntries() {
+        return processingOutlineCacheEntries;
+    }
+
+    public void setProcessingOutlineCacheEntries(int processingOutlineCacheEntries) {
+        this.processingOutlineCacheEntries = processingOutlineCacheEntries;
+    }
+
+    public int getProcessingOutlineCacheSpillMb() {
+        return processingOutlineCacheSpillMb;
+    }
+
+    public void setProcessingOutlineCacheSpillMb(int processingOutlineCacheSpillMb) {
+        this.processingOutlineCacheSpillMb = processingOutlineCacheSpillMb;
+    }
+
+    public int getProcessingFontCacheMaxMb() {
+        return processingFontCacheMaxMb;
+    }
+
+    public void setProcessingFontCacheMaxMb(int processingFontCacheMaxMb) {
+        this.processingFontCacheMaxMb = processingFontCacheMaxMb;
+    }
+
+    public int getProcessingFontCacheMaxAgeHours() {
+        return processingFontCacheMaxAgeHours;
+    }
+
+    public void setProcessingFontCacheMaxAgeHours(int processingFontCacheMaxAgeHours) {
+        this.processingFontCacheMaxAgeHours = processingFontCacheMaxAgeHours;
+    }
+
+    public int getProcessingJobQueueCapacity() {
+        return processingJobQueueCapacity;
+    }
+
+    public void setProcessingJobQueueCapacity(int processingJobQueueCapacity) {
+        this.processingJobQueueCapacity = processingJobQueueCapacity;
+    }
+
+    public int getProcessingJobRetentionMinutes() {
+        return processingJobRetentionMinutes;
+    }
+
+    public void setProcessingJobRetentionMinutes(int processingJobRetentionMinutes) {
+        this.processingJobRetentionMinutes = processingJobRetentionMinutes;
+    }
+
+    public int getProcessingStageTimeoutSeconds() {
+        return processingStageTimeoutSeconds;
+    }
+
+    public void setProcessingStageTimeoutSeconds(int processingStageTimeoutSeconds) {
+        this.processingStageTimeoutSeconds = processingStageTimeoutSeconds;
+    }
+
+    public int getProcessingGlyphTimeoutSeconds() {
+        return processingGlyphTimeoutSeconds;
+    }
+
+    public void setProcessingGlyphTimeoutSeconds(int processingGlyphTimeoutSeconds) {
+        this.processingGlyphTimeoutSeconds = processingGlyphTimeoutSeconds;
+    }
+
+    public int getStorageArchiveQueueCapacity() {
+        return storageArchiveQueueCapacity;
+    }
+
+    public void setStorageArchiveQueueCapacity(int storageArchiveQueueCapacity) {
+        this.storageArchiveQueueCapacity = storageArchiveQueueCapacity;
+    }
+
+    public int getStorageTempSweepMinutes() {
+        return storageTempSweepMinutes;
+    }
+
+    public void setStorageTempSweepMinutes(int storageTempSweepMinutes) {
+        this.storageTempSweepMinutes = storageTempSweepMinutes;
+    }
+
+    public long getStorageMaxMb() {
+        return storageMaxMb;
+    }
+
+    public void setStorageMaxMb(long storageMaxMb) {
+        this.storageMaxMb = storageMaxMb;
+    }
+
+    public int getStorageMaxAgeHours() {
+        return storageMaxAgeHours;
+    }
+
+    public void setStorageMaxAgeHours(int storageMaxAgeHours) {
+        this.storageMaxAgeHours = storageMaxAgeHours;
+    }
+
+    public int getStorageSweepMinutes() {
+        return storageSweepMinutes;
+    }
+
+    public void setStorageSweepMinutes(int storageSweepMinutes) {
+        this.storageSweepMinutes = storageSweepMinutes;
+    }
+
+    public int getProcessingSubsetCacheMaxMb() {
+        return processingSubsetCacheMaxMb;
+    }
+
+    public void setProcessingSubsetCacheMaxMb(int processingSubsetCacheMaxMb) {
+        this.processingSubsetCacheMaxMb = processingSubsetCacheMaxMb;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,130 @@
+package backend.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web MVC setup: file-backed response bodies are sent without copying them through the heap.
+ *
+ * Spring's resource converters stream every download through an 8 KB buffer. The converters
+ * installed here hand files (whole, or a single byte range) to the servlet container instead:
+ * - on Tomcat with sendfile support, the file of a synchronous GET is passed to the connector
+ *   through the {@code org.apache.tomcat.sendfile.*} request attributes and written by the
+ *   kernel after the handler returns
+ * - elsewhere, it is written with {@link FileChannel#transferTo}
+ * Non-file resources and multi-range responses keep Spring's default handling.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            HttpMessageConverter<?> converter = converters.get(i);
+            if (converter.getClass() == ResourceHttpMessageConverter.class) {
+                converters.set(i, new FileResourceHttpMessageConverter());
+            } else if (converter.getClass() == ResourceRegionHttpMessageConverter.class) {
+                converters.set(i, new FileResourceRegionHttpMessageConverter());
+            }
+        }
+    }
+
+    /**
+     * Sends part of a file as the response body.
+     */
+    private static void transfer(File file, long position, long count, HttpOutputMessage outputMessage)
+        throws IOException {
+        HttpServletRequest request = currentRequest();
+        // The connector only sends the file for plain requests, not for async dispatches (such as
+        // responses completed from a CompletableFuture) or HEAD requests
+        if (request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+            && request.getDispatcherType() == DispatcherType.REQUEST
+            && !"HEAD".equals(request.getMethod())) {
+            // Content-Length is already set; the connector sends the bytes once the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel body = Channels.newChannel(outputMessage.getBody());
+            long end = position + count;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, body);
+                if (sent <= 0) {
+                    throw new IOException("File ended early: " + file.getName());
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes
+            ? ((ServletRequestAttributes) attributes).getRequest()
+            : null;
+    }
+
+    /**
+     * Writes whole file resources with {@link #transfer}.
+     */
+    static class FileResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+        @Override
+        protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException {
+            if (!resource.isFile()) {
+                super.writeContent(resource, outputMessage);
+                return;
+            }
+            File file = resource.getFile();
+            transfer(file, 0, file.length(), outputMessage);
+        }
+    }
+
+    /**
+     * Writes single byte ranges of file resources with {@link #transfer}.
+     */
+    static class FileResourceRegionHttpMessageConverter extends ResourceRegionHttpMessageConverter {
+        @Override
+        protected void writeResourceRegion(ResourceRegion region, HttpOutputMessage outputMessage) throws IOException {
+            Resource resource = region.getResource();
+            if (!resource.isFile()) {
+                super.writeResourceRegion(region, outputMessage);
+                return;
+            }
+            File file = resource.getFile();
+            long length = file.length();
+            long start = region.getPosition();
+            long count = Math.min(region.getCount(), length - start);
+            HttpHeaders headers = outputMessage.getHeaders();
+            headers.add(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + count - 1) + "/" + length);
+            headers.setContentLength(count);
+            transfer(file, start, count, outputMessage);
+        }
+    }
+}
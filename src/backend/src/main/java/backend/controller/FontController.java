@@ -1,15 +1,28 @@
 package backend.controller;
 
+import backend.pipeline.StorageManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,58 +30,89 @@ import org.springframework.web.multipart.MultipartFile;
 
 /**
  * REST controller that handles font generation requests.
- * Provides an API endpoint for converting uploaded ZIP files containing character images
- * into TTF font files.
+ * Provides API endpoints for converting uploaded ZIP files containing character images
+ * into TTF font files, one at a time or several in one request.
  */
 @RestController
 @RequestMapping("/api")
 public class FontController {
 
+  /** Response header telling whether the font came from the font result cache. */
+  static final String FONT_CACHE_HEADER = "X-Font-Cache";
+  /** Name of the per-font status list inside a batch response. */
+  static final String BATCH_STATUS_NAME = "status.json";
+  private static final MediaType WOFF = MediaType.parseMediaType(FontResult.Format.WOFF.getMediaType());
+  /** Accept types answered with the TrueType file. */
+  private static final List<MediaType> TTF_TYPES = List.of(MediaType.APPLICATION_OCTET_STREAM,
+      MediaType.parseMediaType("font/ttf"), MediaType.parseMediaType("font/sfnt"),
+      MediaType.parseMediaType("application/x-font-ttf"));
+
+  @Autowired
+  private FontJobManager jobManager;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @Autowired
-  private FontProcessingService fontProcessingService;
+  private StorageManager storage;
 
   /**
    * Generates a TTF font file from a ZIP file containing PNG images of handwritten characters.
    * The ZIP file should contain PNG images named in the format "glyph_X.png" where X is the 
    * Unicode code point of the character.
    * 
+   * The font is returned as TTF, or as WOFF when asked for with {@code format=woff} or an
+   * Accept header preferring {@code font/woff} (see {@link #negotiateFormat}).
+   * 
    * @param fontZip A ZIP file containing PNG images of handwritten characters
-   * @return A ResponseEntity containing either the generated TTF font file or an error message
+   * @param format Optional download format, "ttf" or "woff"; takes precedence over Accept
+   * @param accept The request's Accept header
+   * @return A ResponseEntity containing either the generated font file or an error message
    */
   @PostMapping("/generateFont")
-  public CompletableFuture<ResponseEntity<?>> generateFont(@RequestParam("fontZip") MultipartFile fontZip) {
+  public CompletableFuture<ResponseEntity<?>> generateFont(@RequestParam("fontZip") MultipartFile fontZip,
+      @RequestParam(value = "format", required = false) String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
     if (fontZip.isEmpty() || !fontZip.getContentType().equalsIgnoreCase("application/zip")) {
       return CompletableFuture.completedFuture(
           ResponseEntity.badRequest().body("Invalid or missing ZIP file.")
       );
     }
+    FontResult.Format fontFormat;
+    try {
+      fontFormat = negotiateFormat(format, accept);
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+    }
 
     try {
-      // Save ZIP file to a temporary location
-      File uploadedZip = File.createTempFile("fontZip_", ".zip");
-      uploadedZip.deleteOnExit();
-      fontZip.transferTo(uploadedZip);
+      // Queue the job; it reads the upload straight from this request, which stays open until
+      // the font is ready
+      FontJob job = jobManager.submitStreaming(fontZip);
 
       // Process the ZIP file to generate a TTF font
-      return fontProcessingService.processGlyphZip(uploadedZip)
-          .thenApply(ttfFile -> {
+      return job.getResult()
+          .thenApply(result -> {
+            File ttfFile = result != null ? result.getTtfFile() : null;
             if (ttfFile == null || !ttfFile.exists()) {
+              if (job.getProgress().isTimedOut()) {
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(job.getProgress().getError());
+              }
               return ResponseEntity.status(500).body("Font generation failed.");
             }
             try {
-              InputStreamResource resource = new InputStreamResource(new FileInputStream(ttfFile));
-              HttpHeaders headers = new HttpHeaders();
-              headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=generated_font.ttf");
-              return ResponseEntity.ok()
-                  .headers(headers)
-                  .contentLength(ttfFile.length())
-                  .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                  .body(resource);
-            } catch (FileNotFoundException e) {
+              return fontResponse(job.getId(), result, fontFormat, storage);
+            } catch (IOException e) {
               e.printStackTrace();
               return ResponseEntity.status(500).body("Unable to read generated font file.");
             }
           });
+    } catch (FontJobManager.QueueFullException e) {
+      return CompletableFuture.completedFuture(
+          ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+              .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+              .body(e.getMessage())
+      );
     } catch (Exception e) {
       e.printStackTrace();
       return CompletableFuture.completedFuture(
@@ -76,4 +120,196 @@ public class FontController {
       );
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Generates several fonts from one request, such as the variants of a user's handwriting at
+   * different marker sizes.
+   *
+   * Every glyph set becomes a job of its own, submitted in request order. The jobs run side by
+   * side on the font job pool, so one font is being traced while another is being assembled,
+   * and the request is answered once all of them have finished. Glyph sets the job queue has no
+   * room for are reported as rejected instead of failing the whole batch.
+   *
+   * The response is a ZIP file holding {@value #BATCH_STATUS_NAME}, which lists every glyph set
+   * in request order with its job id, state and error, and the generated fonts as
+   * {@code font-<n>.ttf}, numbered from 1 in request order.
+   *
+   * @param fontZips ZIP files containing PNG images named "glyph_X.png", one per font
+   * @return The ZIP response; 400 if no glyph set could be submitted, 429 with Retry-After if
+   *         the queue had room for none of them
+   */
+  @PostMapping("/generateFonts")
+  public CompletableFuture<ResponseEntity<?>> generateFonts(@RequestParam("fontZip") List<MultipartFile> fontZips) {
+    List<Map<String, Object>> statuses = new ArrayList<>();
+    List<FontJob> jobs = new ArrayList<>();
+    long retryAfter = 0;
+    for (MultipartFile fontZip : fontZips) {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("name", fontZip.getOriginalFilename());
+      statuses.add(status);
+      jobs.add(null);
+      if (fontZip.isEmpty() || !"application/zip".equalsIgnoreCase(fontZip.getContentType())) {
+        status.put("state", "INVALID");
+        status.put("error", "Invalid or missing ZIP file.");
+        continue;
+      }
+      try {
+        // Spooled, so the job does not depend on this request's upload files
+        FontJob job = jobManager.submit(fontZip);
+        status.put("id", job.getId());
+        jobs.set(jobs.size() - 1, job);
+      } catch (FontJobManager.QueueFullException e) {
+        status.put("state", "REJECTED");
+        status.put("error", e.getMessage());
+        retryAfter = Math.max(retryAfter, e.getRetryAfterSeconds());
+      } catch (Exception e) {
+        e.printStackTrace();
+        status.put("state", FontJob.State.FAILED);
+        status.put("error", "Error processing uploaded ZIP file.");
+      }
+    }
+
+    if (jobs.stream().allMatch(Objects::isNull)) {
+      if (retryAfter > 0) {
+        return CompletableFuture.completedFuture(
+            ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(statuses)
+        );
+      }
+      return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(statuses));
+    }
+
+    CompletableFuture<?>[] results = jobs.stream()
+        .filter(Objects::nonNull)
+        .map(FontJob::getResult)
+        .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(results).thenApply(done -> batchResponse(jobs, statuses));
+  }
+
+  /**
+   * Builds the ZIP response of a finished batch. Fonts are a few hundred kilobytes at most, so
+   * the ZIP is built in memory.
+   */
+  private ResponseEntity<?> batchResponse(List<FontJob> jobs, List<Map<String, Object>> statuses) {
+    Map<String, File> fonts = new LinkedHashMap<>();
+    for (int i = 0; i < jobs.size(); i++) {
+      FontJob job = jobs.get(i);
+      if (job == null) {
+        continue;
+      }
+      Map<String, Object> status = statuses.get(i);
+      FontResult result = job.getResult().getNow(null);
+      status.put("state", job.getState());
+      if (job.getState() == FontJob.State.SUCCEEDED) {
+        String name = "font-" + (i + 1) + ".ttf";
+        status.put("file", name);
+        status.put("cacheHit", result.isCacheHit());
+        fonts.put(name, result.getTtfFile());
+      } else {
+        status.put("error", job.getProgress().getError());
+      }
+    }
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(body)) {
+      zip.putNextEntry(new ZipEntry(BATCH_STATUS_NAME));
+      zip.write(objectMapper.writeValueAsBytes(statuses));
+      zip.closeEntry();
+      for (Map.Entry<String, File> font : fonts.entrySet()) {
+        zip.putNextEntry(new ZipEntry(font.getKey()));
+        Files.copy(font.getValue().toPath(), zip);
+        zip.closeEntry();
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return ResponseEntity.status(500).body("Unable to read generated font files.");
+    }
+    return ResponseEntity.ok()
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=generated_fonts.zip")
+        .contentType(MediaType.parseMediaType("application/zip"))
+        .body(body.toByteArray());
+  }
+
+  /**
+   * Builds the download response for a generated font.
+   *
+   * The body is a {@link FileSystemResource}, so the file is opened only while the response is
+   * written and is sent without copying through the heap (see
+   * {@link backend.config.WebConfiguration}). The ETag is the content digest and Last-Modified
+   * the file time, which lets Spring answer conditional GETs with 304 Not Modified; Range
+   * requests are answered with 206 Partial Content.
+   *
+   * A WOFF file is converted from the TTF by the first download that asks for it and kept in
+   * the job's result directory, whose size is then measured again for the storage quota.
+   *
+   * @param jobId Id of the job that generated the font
+   * @param result A successful font result whose file exists
+   * @param format The format to send
+   * @param storage Keeps the job's result directory
+   * @return The 200 response carrying the font
+   * @throws IOException If the font file cannot be read or converted
+   */
+  static ResponseEntity<FileSystemResource> fontResponse(String jobId, FontResult result, FontResult.Format format,
+      StorageManager storage) throws IOException {
+    boolean converted = !result.isAvailable(format);
+    File fontFile = result.getFile(format);
+    if (converted) {
+      storage.update(jobId);
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=generated_font." + format.getExtension());
+    headers.add(FONT_CACHE_HEADER, result.isCacheHit() ? "HIT" : "MISS");
+    // Each format is a representation of its own, with its own validator
+    String etag = format == FontResult.Format.TTF ? result.getDigest() : result.getDigest() + "-" + format.getExtension();
+    return ResponseEntity.ok()
+        .headers(headers)
+        .eTag("\"" + etag + "\"")
+        .lastModified(fontFile.lastModified())
+        .varyBy(HttpHeaders.ACCEPT)
+        .contentType(MediaType.parseMediaType(format.getMediaType()))
+        .body(new FileSystemResource(fontFile));
+  }
+
+  /**
+   * Picks the format to send a font in: the {@code format} query parameter if given, otherwise
+   * the preferred font type of the Accept header that is supported, otherwise TTF.
+   *
+   * @param format Value of the {@code format} query parameter, or null
+   * @param accept Value of the Accept header, or null
+   * @return The format to send
+   * @throws IllegalArgumentException If the query parameter names an unsupported format
+   */
+  static FontResult.Format negotiateFormat(String format, String accept) {
+    if (format != null) {
+      for (FontResult.Format candidate : FontResult.Format.values()) {
+        if (candidate.getExtension().equalsIgnoreCase(format)) {
+          return candidate;
+        }
+      }
+      throw new IllegalArgumentException("Unsupported font format: " + format);
+    }
+    if (accept == null) {
+      return FontResult.Format.TTF;
+    }
+    List<MediaType> acceptable;
+    try {
+      acceptable = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return FontResult.Format.TTF;
+    }
+    MediaType.sortBySpecificityAndQuality(acceptable);
+    for (MediaType type : acceptable) {
+      if (type.getQualityValue() == 0) {
+        continue;
+      }
+      if (WOFF.equalsTypeAndSubtype(type)) {
+        return FontResult.Format.WOFF;
+      }
+      if (type.isWildcardType() || type.isWildcardSubtype() || TTF_TYPES.stream().anyMatch(type::equalsTypeAndSubtype)) {
+        return FontResult.Format.TTF;
+      }
+    }
+    return FontResult.Format.TTF;
+  }
+}
@@ -0,0 +1,74 @@
+package backend.controller;
+
+import backend.pipeline.JobProgress;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A submitted font generation job: its identity, live progress and eventual result.
+ */
+public class FontJob {
+
+  /**
+   * Externally visible lifecycle of a job.
+   */
+  public enum State {
+    QUEUED, RUNNING, SUCCEEDED, FAILED, TIMED_OUT
+  }
+
+  private final String id;
+  private final long submittedMillis = System.currentTimeMillis();
+  private final JobProgress progress = new JobProgress();
+  private final CompletableFuture<FontResult> result = new CompletableFuture<>();
+  private volatile long finishedMillis;
+
+  public FontJob(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public long getSubmittedMillis() {
+    return submittedMillis;
+  }
+
+  /**
+   * @return Completion time, or 0 while the job is still queued or running
+   */
+  public long getFinishedMillis() {
+    return finishedMillis;
+  }
+
+  public JobProgress getProgress() {
+    return progress;
+  }
+
+  /**
+   * @return Completes with the generated font, or with null if the job failed
+   */
+  public CompletableFuture<FontResult> getResult() {
+    return result;
+  }
+
+  /**
+   * Completes the job.
+   *
+   * @param font The generated font, or null if the job failed
+   */
+  void finish(FontResult font) {
+    finishedMillis = System.currentTimeMillis();
+    result.complete(font);
+  }
+
+  public State getState() {
+    if (result.isDone()) {
+      FontResult font = result.getNow(null);
+      if (font != null && font.getTtfFile() != null) {
+        return State.SUCCEEDED;
+      }
+      return progress.isTimedOut() ? State.TIMED_OUT : State.FAILED;
+    }
+    return progress.getStage() == JobProgress.Stage.QUEUED ? State.QUEUED : State.RUNNING;
+  }
+}
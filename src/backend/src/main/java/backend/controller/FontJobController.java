@@ -0,0 +1,327 @@
+package backend.controller;
+
+import backend.font.FontSubsetter;
+import backend.font.WoffWriter;
+import backend.pipeline.ArchiveWriter;
+import backend.pipeline.JobProgress;
+import backend.pipeline.StorageManager;
+import backend.pipeline.SubsetCache;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * REST controller for asynchronous font generation.
+ * A job is submitted with the glyph ZIP, its progress is polled, and the font is downloaded
+ * once the job has succeeded. No request is held open while the pipeline runs.
+ * A finished job's font can be rebuilt from a partial upload holding only the changed glyphs,
+ * and downloaded whole or as a subset of the glyphs a client needs.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class FontJobController {
+
+  private static final Logger logger = LoggerFactory.getLogger(FontJobController.class);
+  // Archive packs are written within moments of the job finishing unless the writer is backed up
+  private static final int ARCHIVE_RETRY_SECONDS = 1;
+
+  @Autowired
+  private FontJobManager jobManager;
+
+  @Autowired
+  private StorageManager storage;
+
+  @Autowired
+  private SubsetCache subsetCache;
+
+  @Autowired
+  private ArchiveWriter archiveWriter;
+
+  /**
+   * Submits a font generation job.
+   *
+   * @param fontZip A ZIP file containing PNG images named "glyph_X.png"
+   * @return 202 with the job status and its URL, or 429 with Retry-After if the queue is full
+   */
+  @PostMapping
+  public ResponseEntity<?> submit(@RequestParam("fontZip") MultipartFile fontZip) {
+    if (fontZip.isEmpty() || !"application/zip".equalsIgnoreCase(fontZip.getContentType())) {
+      return ResponseEntity.badRequest().body("Invalid or missing ZIP file.");
+    }
+    try {
+      FontJob job = jobManager.submit(fontZip);
+      return ResponseEntity.accepted()
+          .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri())
+          .body(describe(job));
+    } catch (FontJobManager.QueueFullException e) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+          .body(e.getMessage());
+    } catch (Exception e) {
+      logger.error("Failed to submit font job", e);
+      return ResponseEntity.status(500).body("Error processing uploaded ZIP file.");
+    }
+  }
+
+  /**
+   * Submits an incremental rebuild of a finished job's font: only the glyphs in the upload are
+   * traced, and every other glyph is taken from the base job.
+   *
+   * @param id Id of the base job; its result must still be in storage
+   * @param fontZip A ZIP file containing only the changed PNG images, named "glyph_X.png"
+   * @return 202 with the new job's status and its URL, 404 if the base job's result is not in
+   *         storage, 409 with Retry-After if its archive has not been written yet (see "archived"
+   *         in the job status), 501 if archiving is disabled, or 429 with Retry-After if the queue
+   *         is full
+   */
+  @PostMapping("/{id}/rebuild")
+  public ResponseEntity<?> rebuild(@PathVariable String id, @RequestParam("fontZip") MultipartFile fontZip) {
+    if (fontZip.isEmpty() || !"application/zip".equalsIgnoreCase(fontZip.getContentType())) {
+      return ResponseEntity.badRequest().body("Invalid or missing ZIP file.");
+    }
+    if (!archiveWriter.isEnabled()) {
+      return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+          .body("Rebuilds are disabled: job archives are not written (storage.archive-queue-capacity=0).");
+    }
+    File baseDir = storage.find(id);
+    if (baseDir == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Base font is not available.");
+    }
+    File baseArchive = new File(baseDir, FontProcessingService.ARCHIVE_NAME);
+    if (!baseArchive.isFile()) {
+      return ResponseEntity.status(HttpStatus.CONFLICT)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(ARCHIVE_RETRY_SECONDS))
+          .body("Base font glyphs are not archived yet; retry once the job status reports \"archived\": true.");
+    }
+    storage.touch(id);
+    try {
+      FontJob job = jobManager.submitRebuild(baseArchive, fontZip);
+      return ResponseEntity.accepted()
+          .location(ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/jobs/{id}").buildAndExpand(job.getId()).toUri())
+          .body(describe(job));
+    } catch (FontJobManager.QueueFullException e) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+          .body(e.getMessage());
+    } catch (Exception e) {
+      logger.error("Failed to submit rebuild of font job " + id, e);
+      return ResponseEntity.status(500).body("Error processing uploaded ZIP file.");
+    }
+  }
+
+  /**
+   * Reports the state and per-stage progress of a job.
+   *
+   * @param id Job id returned on submission
+   * @return The job status, or 404 if the job is unknown or has expired
+   */
+  @GetMapping("/{id}")
+  public ResponseEntity<?> status(@PathVariable String id) {
+    FontJob job = jobManager.get(id);
+    if (job == null) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(describe(job));
+  }
+
+  /**
+   * Downloads the font generated by a job.
+   *
+   * The font is sent as TTF, or as WOFF when asked for with {@code format=woff} or an Accept
+   * header preferring {@code font/woff}. Once the job itself has expired, the font is served from
+   * storage for as long as the result is kept there.
+   *
+   * @param id Job id returned on submission
+   * @param format Optional download format, "ttf" or "woff"; takes precedence over Accept
+   * @param accept The request's Accept header
+   * @return The font file, or 304 if the client's copy is current (If-None-Match) and 206 for
+   *         Range requests; 409 while the job is still running, 422 if it failed, 504 if it
+   *         timed out, 410 if its result has been evicted from storage, 404 if neither the job
+   *         nor its result is known
+   */
+  @GetMapping("/{id}/font")
+  public ResponseEntity<?> font(@PathVariable String id,
+      @RequestParam(value = "format", required = false) String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    FontResult.Format fontFormat;
+    try {
+      fontFormat = FontController.negotiateFormat(format, accept);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+    FontResult result;
+    FontJob job = jobManager.get(id);
+    if (job != null) {
+      ResponseEntity<?> unfinished = unfinished(job);
+      if (unfinished != null) {
+        return unfinished;
+      }
+      result = job.getResult().getNow(null);
+    } else {
+      File resultDir = storage.find(id);
+      if (resultDir == null) {
+        return ResponseEntity.notFound().build();
+      }
+      result = new FontResult(new File(resultDir, FontProcessingService.FONT_NAME), false);
+    }
+    if (!result.getTtfFile().exists()) {
+      return ResponseEntity.status(HttpStatus.GONE).body("Generated font file is no longer available.");
+    }
+    storage.touch(id);
+    try {
+      return FontController.fontResponse(id, result, fontFormat, storage);
+    } catch (IOException e) {
+      logger.error("Failed to send font of job " + id, e);
+      return ResponseEntity.status(HttpStatus.GONE).body("Generated font file is no longer available.");
+    }
+  }
+
+  /**
+   * Downloads a subset of the font generated by a job, holding only the glyphs of the given text
+   * and code points, for clients that render a short text and need no more of the font.
+   *
+   * The subset is cut from the job's stored font (see {@link FontSubsetter}), so it is available
+   * for as long as the font is kept in storage, and is cached in the {@link SubsetCache} by job,
+   * format and code point set. It is sent as TTF or WOFF like the whole font.
+   *
+   * @param id Job id returned on submission
+   * @param text Text whose characters to include
+   * @param codepoints Comma-separated code points to include, decimal or as "U+hex"
+   * @param format Optional download format, "ttf" or "woff"; takes precedence over Accept
+   * @param accept The request's Accept header
+   * @return The subset font file, or 304 if the client's copy is current (If-None-Match); 400 if
+   *         no valid code points are given, 404 if the font is not in storage, 409 while the job
+   *         is still running, 422 if it failed, 504 if it timed out
+   */
+  @GetMapping("/{id}/subset")
+  public ResponseEntity<?> subset(@PathVariable String id,
+      @RequestParam(value = "text", required = false) String text,
+      @RequestParam(value = "codepoints", required = false) String codepoints,
+      @RequestParam(value = "format", required = false) String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+    SortedSet<Integer> requested = new TreeSet<>();
+    if (text != null) {
+      text.codePoints().forEach(requested::add);
+    }
+    if (codepoints != null) {
+      for (String value : codepoints.split(",")) {
+        value = value.trim();
+        if (value.isEmpty()) {
+          continue;
+        }
+        try {
+          int codepoint = value.regionMatches(true, 0, "U+", 0, 2)
+              ? Integer.parseInt(value.substring(2), 16)
+              : Integer.parseInt(value);
+          if (!Character.isValidCodePoint(codepoint)) {
+            throw new NumberFormatException();
+          }
+          requested.add(codepoint);
+        } catch (NumberFormatException e) {
+          return ResponseEntity.badRequest().body("Invalid code point: " + value);
+        }
+      }
+    }
+    if (requested.isEmpty()) {
+      return ResponseEntity.badRequest().body("No text or code points given.");
+    }
+    FontResult.Format fontFormat;
+    try {
+      fontFormat = FontController.negotiateFormat(format, accept);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    File resultDir = storage.find(id);
+    if (resultDir == null) {
+      FontJob job = jobManager.get(id);
+      ResponseEntity<?> unfinished = job != null ? unfinished(job) : null;
+      return unfinished != null ? unfinished : ResponseEntity.status(HttpStatus.NOT_FOUND).body("Font is not available.");
+    }
+    storage.touch(id);
+
+    String key = SubsetCache.keyOf(id + ":" + fontFormat.getExtension(), requested);
+    byte[] subset = subsetCache.get(key);
+    if (subset == null) {
+      try {
+        byte[] ttf = Files.readAllBytes(new File(resultDir, FontProcessingService.FONT_NAME).toPath());
+        subset = FontSubsetter.subset(ttf, requested);
+        if (fontFormat == FontResult.Format.WOFF) {
+          subset = WoffWriter.write(subset);
+        }
+      } catch (NoSuchFileException e) {
+        return ResponseEntity.status(HttpStatus.GONE).body("Generated font file is no longer available.");
+      } catch (IOException e) {
+        logger.error("Failed to subset font of job " + id, e);
+        return ResponseEntity.status(500).body("Unable to subset generated font.");
+      }
+      subsetCache.put(key, subset);
+    }
+    return ResponseEntity.ok()
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=generated_font_subset." + fontFormat.getExtension())
+        .eTag("\"" + key.replace(':', '-') + "\"")
+        .varyBy(HttpHeaders.ACCEPT)
+        .contentType(MediaType.parseMediaType(fontFormat.getMediaType()))
+        .body(subset);
+  }
+
+  /**
+   * @return The error response for a job that has no font to download, or null if it succeeded
+   */
+  private static ResponseEntity<?> unfinished(FontJob job) {
+    switch (job.getState()) {
+      case FAILED:
+        return ResponseEntity.unprocessableEntity().body(job.getProgress().getError());
+      case TIMED_OUT:
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(job.getProgress().getError());
+      case SUCCEEDED:
+        return null;
+      default:
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Font job has not finished yet.");
+    }
+  }
+
+  private Map<String, Object> describe(FontJob job) {
+    JobProgress progress = job.getProgress();
+    Map<String, Object> glyphs = new LinkedHashMap<>();
+    glyphs.put("read", progress.getGlyphsRead());
+    glyphs.put("traced", progress.getGlyphsTraced());
+
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("id", job.getId());
+    status.put("state", job.getState());
+    status.put("stage", progress.getStage());
+    status.put("glyphs", glyphs);
+    status.put("stageMillis", progress.getStageMillis());
+    if (progress.getError() != null) {
+      status.put("error", progress.getError());
+    }
+    if (job.getState() == FontJob.State.SUCCEEDED && archiveWriter.isEnabled()) {
+      // A finished job can be the base of a rebuild once its archive pack is in place
+      File resultDir = storage.find(job.getId());
+      status.put("archived", resultDir != null && new File(resultDir, FontProcessingService.ARCHIVE_NAME).isFile());
+    }
+    return status;
+  }
+}
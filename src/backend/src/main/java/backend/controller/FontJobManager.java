@@ -0,0 +1,194 @@
+package backend.controller;
+
+import backend.config.ProcessingConfiguration;
+import backend.pipeline.FontJobExecutor;
+import backend.pipeline.WorkspaceManager;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Admits font jobs into a bounded queue and keeps track of them until they expire.
+ *
+ * Jobs run on the {@link FontJobExecutor}, where at most {@code processing.job-queue-capacity}
+ * jobs may be waiting for a processing thread. Submissions the executor rejects are reported
+ * as a {@link QueueFullException} carrying a retry hint derived from recent job durations, so
+ * load spikes are turned away instead of piling up.
+ * Finished jobs stay available for {@code processing.job-retention-minutes}.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+@Service
+public class FontJobManager {
+
+  private static final Logger logger = LoggerFactory.getLogger(FontJobManager.class);
+  private static final double INITIAL_JOB_SECONDS = 30;
+
+  @Autowired
+  private ProcessingConfiguration config;
+
+  @Autowired
+  private FontProcessingService fontProcessingService;
+
+  @Autowired
+  private FontJobExecutor fontJobExecutor;
+
+  @Autowired
+  private WorkspaceManager workspaces;
+
+  private final Map<String, FontJob> jobs = new ConcurrentHashMap<>();
+  private volatile double averageJobSeconds = INITIAL_JOB_SECONDS;
+
+  /**
+   * Submits a detached job: the upload is moved out of the request (a rename for disk-backed
+   * uploads) so the job can run after the response has been sent.
+   *
+   * @param upload The uploaded ZIP
+   * @return The queued job
+   * @throws QueueFullException If the queue is full
+   * @throws IOException If the upload cannot be spooled
+   */
+  public FontJob submit(MultipartFile upload) throws QueueFullException, IOException {
+    return submitRebuild(null, upload);
+  }
+
+  /**
+   * Submits a detached incremental rebuild: a job that traces only the uploaded glyphs and takes
+   * all others from a base job's archive.
+   *
+   * @param baseArchive Archive of the base job; null for a job built from the upload alone
+   * @param upload The uploaded ZIP with the changed glyphs
+   * @return The queued job
+   * @throws QueueFullException If the queue is full
+   * @throws IOException If the upload cannot be spooled
+   */
+  public FontJob submitRebuild(File baseArchive, MultipartFile upload) throws QueueFullException, IOException {
+    FontJob job = admit();
+    File spool = null;
+    try {
+      spool = workspaces.createSpoolFile();
+      upload.transferTo(spool);
+      start(job, new FileInputStream(spool), spool, baseArchive);
+      return job;
+    } catch (IOException | RuntimeException | QueueFullException e) {
+      jobs.remove(job.getId());
+      if (spool != null) {
+        workspaces.release(spool);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Submits a job that reads the upload straight from the request. The caller must keep the
+   * request open until the job's result completes.
+   *
+   * @param upload The uploaded ZIP
+   * @return The queued job
+   * @throws QueueFullException If the queue is full
+   * @throws IOException If the upload cannot be opened
+   */
+  public FontJob submitStreaming(MultipartFile upload) throws QueueFullException, IOException {
+    FontJob job = admit();
+    try {
+      start(job, upload.getInputStream(), null, null);
+      return job;
+    } catch (IOException | RuntimeException | QueueFullException e) {
+      jobs.remove(job.getId());
+      throw e;
+    }
+  }
+
+  /**
+   * @param id Job id
+   * @return The job, or null if it is unknown or has expired
+   */
+  public FontJob get(String id) {
+    expireFinishedJobs();
+    return jobs.get(id);
+  }
+
+  private FontJob admit() {
+    expireFinishedJobs();
+    FontJob job = new FontJob(UUID.randomUUID().toString());
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+  private void start(FontJob job, InputStream upload, File spool, File baseArchive)
+      throws QueueFullException, IOException {
+    try {
+      fontProcessingService.processGlyphZip(job.getId(), upload, baseArchive, job.getProgress())
+          .whenComplete((font, error) -> {
+            if (spool != null) {
+              workspaces.release(spool);
+            }
+            if (error != null) {
+              logger.error("Font job " + job.getId() + " failed", error);
+              job.getProgress().fail("Font generation failed: " + error.getMessage());
+            }
+            job.finish(error == null ? font : null);
+            recordDuration(job);
+          });
+    } catch (TaskRejectedException e) {
+      upload.close();
+      int queued = fontJobExecutor.getQueuedCount();
+      // Time until enough queued jobs have drained for this one to get a slot
+      long retryAfter = (long) Math.ceil(averageJobSeconds * (queued + 1) / config.getProcessingMaxConcurrentJobs());
+      retryAfter = Math.max(1, Math.min(retryAfter, config.getProcessingTimeoutSeconds()));
+      logger.warn("Rejecting font job: {} jobs already queued", queued);
+      throw new QueueFullException(retryAfter);
+    }
+    logger.info("Accepted font job {}", job.getId());
+  }
+
+  private void recordDuration(FontJob job) {
+    double seconds = (job.getFinishedMillis() - job.getSubmittedMillis()) / 1000.0;
+    // Exponential moving average, weighted towards recent jobs
+    averageJobSeconds = 0.8 * averageJobSeconds + 0.2 * seconds;
+  }
+
+  private void expireFinishedJobs() {
+    long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(config.getProcessingJobRetentionMinutes());
+    Iterator<FontJob> iterator = jobs.values().iterator();
+    while (iterator.hasNext()) {
+      FontJob job = iterator.next();
+      if (job.getFinishedMillis() != 0 && job.getFinishedMillis() < cutoff) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Raised when the job queue is full.
+   */
+  public static class QueueFullException extends Exception {
+    private final long retryAfterSeconds;
+
+    public QueueFullException(long retryAfterSeconds) {
+      super("Font job queue is full");
+      this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return Suggested delay before resubmitting
+     */
+    public long getRetryAfterSeconds() {
+      return retryAfterSeconds;
+    }
+  }
+}
@@ -1,23 +1,47 @@
 package backend.controller;
 
-import backend.config.ProcessingConfiguration;
-import java.awt.Graphics2D;
+import backend.config.PipelineConfiguration;
+import backend.font.FontAssembler;
+import backend.pipeline.ArchiveWriter;
+import backend.pipeline.FontResultCache;
+import backend.pipeline.GlyphStageExecutor;
+import backend.pipeline.JobProgress;
+import backend.pipeline.JobWatchdog;
+import backend.pipeline.JobWorkspace;
+import backend.pipeline.PipelineMetrics;
+import backend.pipeline.ProcessDeadline;
+import backend.pipeline.StorageManager;
+import backend.pipeline.WorkspaceManager;
+import backend.vectorize.GlyphBitmap;
+import backend.vectorize.GlyphOutline;
+import backend.vectorize.GlyphVectorizer;
+import backend.vectorize.PotraceSvg;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import javax.imageio.ImageIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,11 +60,14 @@ import org.springframework.stereotype.Service;
  * - Asynchronous processing for scalability
  * 
  * Processing Pipeline:
- * 1. Extract PNG images from uploaded ZIP file
- * 2. Apply intelligent image preprocessing (crop whitespace, normalize)
- * 3. Convert images to BMP format for vector processing
- * 4. Use Potrace to convert BMP to SVG vector format
- * 5. Use FontForge to compile SVG files into production TTF font
+ * 1. Stream PNG images out of the uploaded ZIP, decoding each one in memory as it arrives
+ * 2. Apply intelligent image preprocessing (crop whitespace, threshold to a packed 1-bit bitmap)
+ * 3. Trace each image to a vector outline with the configured {@link GlyphVectorizer}
+ *    (Potrace or the in-process tracer; glyphs run in parallel on the shared glyph pool)
+ * 4. Assemble the outlines into a TTF font with the configured {@link FontAssembler}
+ *    (FontForge over SVG files, or the in-process TrueType writer)
+ * 5. Publish the font to the job's own result directory with an atomic rename (see
+ *    {@link JobWorkspace}), and hand the glyph images and outlines to the {@link ArchiveWriter}
  * 6. Return generated font with proper cleanup
  * 
  * @author TextToHandwriting Team
@@ -51,231 +78,420 @@ import org.springframework.stereotype.Service;
 public class FontProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(FontProcessingService.class);
-  private static final String FONTFORGE_SCRIPT = "src/main/resources/generate_font.py";
+  private static final Pattern GLYPH_FILE_NAME = Pattern.compile("glyph_(\\d{1,7})\\.png", Pattern.CASE_INSENSITIVE);
+  /** Artifact names inside a job's result directory. */
+  static final String ARCHIVE_NAME = "archive.zip";
+  static final String FONT_NAME = "output_font.ttf";
+  /** Entry name prefixes inside {@value #ARCHIVE_NAME}. */
+  private static final String UPLOAD_PREFIX = "upload/";
+  private static final String OUTLINE_PREFIX = "outlines/";
+  private static final Pattern OUTLINE_ENTRY_NAME = Pattern.compile(OUTLINE_PREFIX + "glyph_(\\d{1,7})\\.svg");
     
     @Autowired
-    private ProcessingConfiguration config;
+    private GlyphStageExecutor glyphStage;
+
+    @Autowired
+    private GlyphVectorizer vectorizer;
+
+    @Autowired
+    private FontAssembler fontAssembler;
+
+    @Autowired
+    private FontResultCache fontResultCache;
+
+    @Autowired
+    private JobWatchdog watchdog;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private ArchiveWriter archiveWriter;
+
+    @Autowired
+    private WorkspaceManager workspaces;
+
+    @Autowired
+    private StorageManager storage;
   
   /**
-   * Processes a ZIP file containing handwritten character images to generate a TTF font.
-   * This method runs asynchronously to prevent blocking the caller and includes comprehensive
-   * error handling, logging, and resource management.
+   * Processes a ZIP stream containing handwritten character images to generate a TTF font.
+   * This method runs asynchronously on the font job executor to prevent blocking the caller and
+   * includes comprehensive error handling, logging, and resource management.
+   * 
+   * The stream is read exactly once: every glyph entry is decoded in memory and handed to the
+   * glyph stage as soon as it has been read, while the raw bytes are digested on the way
+   * through. If the {@link FontResultCache} already holds a font for the same upload and
+   * pipeline settings, the glyph work is cancelled and that font is returned instead.
    * 
-   * @param zipFile The ZIP file containing PNG images of handwritten characters
-   * @return A CompletableFuture that will contain the generated TTF font file when processing completes
+   * All files of a job live in its {@link JobWorkspace}, named after the job id, so concurrent
+   * jobs never overwrite each other's outlines or fonts. Artifacts are moved rather than copied
+   * into the result directory {@code <storage>/jobs/<shard>/<job id>}, which appears atomically
+   * once the job has finished and is then kept by the {@link StorageManager} until its quota or
+   * age limit evicts it; a failed job leaves no result directory behind. The work directory is
+   * deleted as soon as the job is done, whatever the outcome. The glyph images and
+   * outlines are kept for reference in {@value #ARCHIVE_NAME} next to the font, written by the
+   * {@link ArchiveWriter} after the result has been returned.
+   * 
+   * An incremental rebuild is given the archive of a base job and an upload holding only the
+   * glyphs that changed. Only those glyphs are traced; every other glyph of the base job is
+   * taken from its archive, with its stored outline, and the font is assembled from the merged
+   * set. The new job's archive holds the merged set, so it can be the base of the next rebuild.
+   * 
+   * The job is watched by the {@link JobWatchdog} while it runs; if it passes its job or stage
+   * deadline it is interrupted and fails with a timeout message in its progress.
+   * 
+   * @param jobId Id of the job; names its workspace and result directory
+   * @param zipStream The uploaded ZIP file contents; closed by this method
+   * @param baseArchive For an incremental rebuild, the {@value #ARCHIVE_NAME} of the base job;
+   *        null to build the font from the upload alone
+   * @param progress Receives stage transitions and glyph counts as the job advances
+   * @return A CompletableFuture that will contain the generated font when processing completes
    * @throws RuntimeException if processing fails due to configuration or external tool issues
+   * @throws org.springframework.core.task.TaskRejectedException if the font job queue is full;
+   *         the stream is not closed in that case
    */
-  @Async
-  public CompletableFuture<File> processGlyphZip(File zipFile) {
-    logger.info("Starting font processing for ZIP file: {}", zipFile.getName());
+  @Async(PipelineConfiguration.FONT_JOB_EXECUTOR)
+  public CompletableFuture<FontResult> processGlyphZip(String jobId, InputStream zipStream, File baseArchive,
+      JobProgress progress) {
+    logger.info("Starting font processing for job {}", jobId);
+    progress.enterStage(JobProgress.Stage.INGEST);
+    JobWorkspace workspace = null;
     
-    try {
-      // 1. Create a temporary working directory with proper cleanup
-      Path tempDir = Files.createTempDirectory("font_work_");
-      File workDir = tempDir.toFile();
-      workDir.deleteOnExit();
+    try (JobWatchdog.Watch watch = watchdog.watch(progress); InputStream upload = zipStream) {
+      // 1-2. Create the job's own working and staging directories
+      workspace = workspaces.createWorkspace(jobId);
+      File workDir = workspace.getWorkDir();
       logger.debug("Created working directory: {}", workDir.getAbsolutePath());
-
-      // 2. Use configured storage directory instead of hardcoded path
-      File finalStorageDir = new File(config.getStorageDirectory());
-      if (!finalStorageDir.exists()) {
-        boolean created = finalStorageDir.mkdirs();
-        if (!created) {
-          logger.warn("Failed to create storage directory: {}", finalStorageDir.getAbsolutePath());
-        }
-      }
       
-      // Archive original ZIP file for reference
-      Files.copy(zipFile.toPath(),
-          new File(finalStorageDir, zipFile.getName()).toPath(),
-          StandardCopyOption.REPLACE_EXISTING);
-      logger.debug("Archived ZIP file to storage directory");
-
-      // 2. Extract the ZIP file into workDir.
-      extractZip(zipFile, workDir);
-
-      // 3. For each glyph image in workDir, convert it to BMP (if needed) and run Potrace.
-      File[] files = workDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
-      if (files != null) {
-        for (File pngFile : files) {
-          // Convert PNG to BMP using ImageIO (if Potrace requires BMP)
-          BufferedImage pngImage = ImageIO.read(pngFile);
-
-          // ────── Trim off all‑white border ──────
-          BufferedImage cropped = trimWhitespace(pngImage);
-
-          // Now convert the cropped image to BMP
-          BufferedImage bmpImage = new BufferedImage(
-              cropped.getWidth(), cropped.getHeight(),
-              BufferedImage.TYPE_INT_RGB
-          );
-          Graphics2D g = bmpImage.createGraphics();
-          g.drawImage(cropped, 0, 0, null);
-          g.dispose();
-
-          // Define the BMP file name and write the BMP image to disk
-          File bmpFile = new File(workDir, pngFile.getName().replace(".png", ".bmp"));
-          boolean writeSuccess = ImageIO.write(bmpImage, "bmp", bmpFile);
-          if (!writeSuccess) {
-            System.err.println("Failed to write BMP file for " + pngFile.getName());
-          }
-          // Delete PNG (optional)
-          pngFile.delete();
-
-          // Generate corresponding SVG file via Potrace with improved error handling
-          String baseName = bmpFile.getName().substring(0, bmpFile.getName().lastIndexOf('.'));
-          File svgFile = new File(workDir, baseName + ".svg");
-
-          ProcessBuilder pb = new ProcessBuilder(
-              config.getResolvedPotracePath(),
-              "-s", bmpFile.getAbsolutePath(),  // output as SVG
-              "-o", svgFile.getAbsolutePath()
-          );
-          pb.redirectErrorStream(true);
-          logger.debug("Running Potrace for file: {}", bmpFile.getName());
-          
-          Process proc = pb.start();
-          int exitCode = proc.waitFor();
-          
-          if (exitCode != 0) {
-            logger.warn("Potrace process failed with exit code {} for file: {}", exitCode, bmpFile.getName());
-          }
-          
-          // Cleanup temporary BMP file
-          boolean deleted = bmpFile.delete();
-          if (!deleted) {
-            logger.debug("Failed to delete temporary BMP file: {}", bmpFile.getName());
+      // 2-3. Read the ZIP entry by entry, keeping the glyph images for the archive, and trace
+      // each glyph image to an outline on the glyph pool while the rest is still being read.
+      ArchiveWriter.Pack archive = new ArchiveWriter.Pack(workspace.published(ARCHIVE_NAME))
+          .whenWritten(() -> storage.update(jobId));
+      List<Integer> codepoints = new ArrayList<>();
+      SortedMap<Integer, GlyphOutline> outlines = new TreeMap<>();
+      GlyphStageExecutor.Batch<GlyphOutline> glyphTasks = glyphStage.newBatch();
+      MessageDigest uploadDigest = MessageDigest.getInstance("SHA-256");
+      String cacheKey;
+      List<GlyphOutline> traced;
+      try (TimedInputStream timed = new TimedInputStream(new DigestInputStream(upload, uploadDigest));
+          ZipInputStream zip = new ZipInputStream(timed)) {
+        // Reading and inflating are interleaved; the timed stream separates the two
+        long zipNanos = 0;
+        long zipStart = System.nanoTime();
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+          int codepoint = entry.isDirectory() ? -1 : codepointOf(entry.getName());
+          if (codepoint < 0) {
+            continue;
           }
+          String entryName = entry.getName();
+          byte[] png = zip.readAllBytes();
+          zipNanos += System.nanoTime() - zipStart;
+          codepoints.add(codepoint);
+          archive.store(UPLOAD_PREFIX + entryName, png);
+          submitGlyph(glyphTasks, entryName, png, workDir, progress);
+          zipStart = System.nanoTime();
         }
-      }
+        // Digest the central directory as well, so the cache key covers the whole upload
+        timed.transferTo(OutputStream.nullOutputStream());
+        zipNanos += System.nanoTime() - zipStart;
 
-      // 4. Call FontForge to assemble a TTF font from the SVGs with comprehensive logging
-      File outputTtf = new File(workDir, "output_font.ttf");
-      ProcessBuilder ffBuilder = new ProcessBuilder(
-          config.getResolvedFontforgePath(),
-          "-lang=py",
-          "-script",
-          FONTFORGE_SCRIPT,
-          workDir.getAbsolutePath(),      // directory with SVG files
-          outputTtf.getAbsolutePath()     // output TTF file path
-      );
-      ffBuilder.redirectErrorStream(true);
-      File ffLog = new File(workDir, "fontforge.log");
-      ffBuilder.redirectOutput(ffLog);
-      
-      logger.info("Starting FontForge processing...");
-      Process ffProcess = ffBuilder.start();
-      int ffExit = ffProcess.waitFor();
-      
-      if (ffExit != 0 || !outputTtf.exists()) {
-        logger.error("FontForge script failed with exit code: {}", ffExit);
-        
-        // Log FontForge output for debugging
-        try (BufferedReader r = new BufferedReader(new FileReader(ffLog))) {
-          String line;
-          while ((line = r.readLine()) != null) {
-            logger.error("FontForge LOG: {}", line);
+        if (baseArchive != null) {
+          // Incremental rebuild: every glyph that was not uploaded comes from the base job
+          long baseStart = System.nanoTime();
+          BaseGlyphs base = readBaseArchive(baseArchive, new HashSet<>(codepoints));
+          int retraced = 0;
+          for (Map.Entry<Integer, byte[]> image : base.images.entrySet()) {
+            int codepoint = image.getKey();
+            byte[] png = image.getValue();
+            String entryName = "glyph_" + codepoint + ".png";
+            // The cache key covers the merged glyph set, not just the upload
+            uploadDigest.update(entryName.getBytes(StandardCharsets.UTF_8));
+            uploadDigest.update(png);
+            archive.store(UPLOAD_PREFIX + entryName, png);
+            GlyphOutline outline = base.outlines.get(codepoint);
+            if (outline != null) {
+              outlines.put(codepoint, outline);
+            } else {
+              // The base job was served from the font cache and archived no outlines
+              codepoints.add(codepoint);
+              submitGlyph(glyphTasks, entryName, png, workDir, progress);
+              retraced++;
+            }
           }
-        } catch (IOException e) {
-          logger.error("Failed to read FontForge log file", e);
+          zipNanos += System.nanoTime() - baseStart;
+          logger.info("Rebuilding job {} from {}: {} glyphs uploaded, {} kept, {} re-traced", jobId,
+              baseArchive.getParentFile().getName(), codepoints.size() - retraced, outlines.size(), retraced);
+        }
+        metrics.record(PipelineMetrics.Step.UPLOAD_RECEIVE, timed.readNanos);
+        metrics.record(PipelineMetrics.Step.EXTRACT, Math.max(0, zipNanos - timed.readNanos));
+
+        // The whole upload has been digested: an identical upload may already have a font
+        cacheKey = FontResultCache.keyOf(uploadDigest.digest(),
+            vectorizer.getSettings() + "|" + fontAssembler.getSettings());
+        File cachedTtf = fontResultCache.get(cacheKey);
+        if (cachedTtf != null && linkCachedFont(workspace, cachedTtf)) {
+          glyphTasks.cancel();
+          logger.info("Serving cached font for identical upload: {}", cachedTtf.getName());
+          FontResult.writeDigest(workspace.staged(FONT_NAME));
+          storage.add(jobId, workspace.publish());
+          archiveWriter.submit(archive);
+          progress.enterStage(JobProgress.Stage.DONE);
+          metrics.recordJob(progress, PipelineMetrics.Outcome.CACHED);
+          return CompletableFuture.completedFuture(new FontResult(workspace.published(FONT_NAME), true));
         }
-        
-        return CompletableFuture.completedFuture(null);
+        enterStage(progress, JobProgress.Stage.VECTORIZE);
+        traced = glyphTasks.join();
+      } catch (Exception e) {
+        glyphTasks.cancel();
+        throw e;
       }
-      
-      logger.info("FontForge processing completed successfully");
-
-      // Copy generated SVG files to final storage directory for reference
-      File[] svgFiles = workDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".svg"));
-      if (svgFiles != null) {
-        for (File svgFile : svgFiles) {
-          Files.copy(svgFile.toPath(),
-              new File(finalStorageDir, svgFile.getName()).toPath(),
-              StandardCopyOption.REPLACE_EXISTING);
+
+      for (int i = 0; i < codepoints.size(); i++) {
+        if (traced.get(i) != null) {
+          outlines.put(codepoints.get(i), traced.get(i));
         }
       }
 
-      // Copy generated TTF font to final storage directory
-      Files.copy(outputTtf.toPath(),
-          new File(finalStorageDir, outputTtf.getName()).toPath(),
-          StandardCopyOption.REPLACE_EXISTING);
+      // 4. Assemble the TTF font from the outlines
+      enterStage(progress, JobProgress.Stage.ASSEMBLE);
+      File outputTtf = new File(workDir, FONT_NAME);
+      long assembleStart = System.nanoTime();
+      fontAssembler.assemble(outlines, workDir, outputTtf);
+      metrics.record(PipelineMetrics.Step.ASSEMBLE, System.nanoTime() - assembleStart);
+
+      // 5. Move the font to the result directory, share it with the result cache and publish
+      enterStage(progress, JobProgress.Stage.STORE);
+      long storeStart = System.nanoTime();
+      workspace.stage(outputTtf, FONT_NAME);
+      FontResult.writeDigest(workspace.staged(FONT_NAME));
+      fontResultCache.put(cacheKey, workspace.staged(FONT_NAME));
+      File resultDir = workspace.publish();
+      File resultTtf = workspace.published(FONT_NAME);
+      metrics.record(PipelineMetrics.Step.RESULT_COPY, System.nanoTime() - storeStart);
+
+      progress.enterStage(JobProgress.Stage.DONE);
+      if (progress.isTimedOut()) {
+        // The deadline passed after the last stage boundary; the job has still failed
+        throw new InterruptedException(progress.getError());
+      }
+      storage.add(jobId, resultDir);
 
-      logger.info("Font processing completed successfully. Output: {}", outputTtf.getName());
-      return CompletableFuture.completedFuture(outputTtf);
+      // The outlines are serialized to SVG by the archive writer, off the response path
+      long archiveStart = System.nanoTime();
+      for (Map.Entry<Integer, GlyphOutline> outline : outlines.entrySet()) {
+        GlyphOutline glyph = outline.getValue();
+        archive.deflate(OUTLINE_PREFIX + "glyph_" + outline.getKey() + ".svg",
+            () -> PotraceSvg.write(glyph).getBytes(StandardCharsets.UTF_8));
+      }
+      archiveWriter.submit(archive);
+      metrics.record(PipelineMetrics.Step.ARCHIVE_COPY, System.nanoTime() - archiveStart);
+      metrics.recordJob(progress, PipelineMetrics.Outcome.SUCCEEDED);
+      logger.info("Font processing completed successfully. Output: {}", resultTtf.getAbsolutePath());
+      return CompletableFuture.completedFuture(new FontResult(resultTtf, false));
       
     } catch (Exception e) {
-      logger.error("Font processing failed for ZIP file: " + zipFile.getName(), e);
+      logger.error("Font processing failed for job " + jobId, e);
+      if (workspace != null) {
+        workspace.discard();
+      }
+      if (e instanceof ProcessDeadline.ExpiredException) {
+        watchdog.timeOut(progress, "Font job timed out: " + e.getMessage());
+      }
+      progress.fail("Font generation failed in stage " + progress.getStage() + ": " + e.getMessage());
+      metrics.recordJob(progress, progress.isTimedOut() ? PipelineMetrics.Outcome.TIMED_OUT : PipelineMetrics.Outcome.FAILED);
       return CompletableFuture.completedFuture(null);
+    } finally {
+      if (workspace != null) {
+        workspaces.release(workspace);
+      }
     }
   }
 
   /**
-   * Helper method: Extracts a ZIP file to the given directory.
+   * Hands one glyph image to the glyph stage and counts it in the job's progress.
+   */
+  private void submitGlyph(GlyphStageExecutor.Batch<GlyphOutline> glyphTasks, String entryName, byte[] png,
+      File workDir, JobProgress progress) throws Exception {
+    progress.glyphRead();
+    glyphTasks.submit(() -> {
+      try {
+        return vectorizeGlyph(entryName, png, workDir);
+      } finally {
+        progress.glyphTraced();
+      }
+    });
+  }
+
+  /**
+   * Reads the glyph images and outlines of a base job from its archive, leaving out the glyphs
+   * that are being replaced.
    * 
-   * @param zipFile The ZIP file to extract
-   * @param targetDir The directory to extract files to
-   * @throws IOException If there's an error reading or extracting the ZIP file
+   * @param baseArchive The base job's {@value #ARCHIVE_NAME}
+   * @param replaced Code points of the uploaded glyphs
+   * @return The remaining glyphs of the base job
+   * @throws IOException If the archive cannot be read, for instance because it has been evicted
    */
-  private void extractZip(File zipFile, File targetDir) throws IOException {
-    try (ZipFile zip = new ZipFile(zipFile)) {
-      Enumeration<?> entries = zip.entries();
+  private static BaseGlyphs readBaseArchive(File baseArchive, Set<Integer> replaced) throws IOException {
+    BaseGlyphs base = new BaseGlyphs();
+    try (ZipFile zip = new ZipFile(baseArchive)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
       while (entries.hasMoreElements()) {
-        ZipEntry entry = (ZipEntry) entries.nextElement();
-        File outFile = new File(targetDir, entry.getName());
-        if (entry.isDirectory()) {
-          outFile.mkdirs();
-        } else {
-          outFile.getParentFile().mkdirs();
-          try (InputStream in = zip.getInputStream(entry);
-              OutputStream out = new FileOutputStream(outFile)) {
-            byte[] buffer = new byte[4096];
-            int len;
-            while ((len = in.read(buffer)) != -1) {
-              out.write(buffer, 0, len);
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (name.startsWith(UPLOAD_PREFIX)) {
+          int codepoint = codepointOf(name.substring(UPLOAD_PREFIX.length()));
+          if (codepoint >= 0 && !replaced.contains(codepoint)) {
+            try (InputStream in = zip.getInputStream(entry)) {
+              base.images.put(codepoint, in.readAllBytes());
             }
           }
+          continue;
+        }
+        Matcher matcher = OUTLINE_ENTRY_NAME.matcher(name);
+        if (!matcher.matches()) {
+          continue;
+        }
+        int codepoint = Integer.parseInt(matcher.group(1));
+        if (replaced.contains(codepoint)) {
+          continue;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+          base.outlines.put(codepoint, PotraceSvg.read(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+          // An unreadable outline is traced again from its image
+          logger.warn("Ignoring unreadable outline {} in {}: {}", name, baseArchive.getAbsolutePath(), e.getMessage());
         }
       }
     }
+    return base;
+  }
+
+  /**
+   * Glyphs of a base job kept by an incremental rebuild, by code point.
+   */
+  private static final class BaseGlyphs {
+    private final SortedMap<Integer, byte[]> images = new TreeMap<>();
+    private final Map<Integer, GlyphOutline> outlines = new HashMap<>();
   }
 
   /**
-   * Crops away any white (or near‑white) border around a BufferedImage.
-   * This improves the quality of the generated glyphs by removing unnecessary whitespace.
+   * Per-glyph stage: decodes the PNG, crops and thresholds it into a {@link GlyphBitmap}, and
+   * traces it with the configured {@link GlyphVectorizer}. Runs on a glyph worker thread; the
+   * decoded image is dropped as soon as the packed bitmap exists.
    * 
-   * @param src The source image to crop
-   * @return A new BufferedImage with whitespace removed from all sides
+   * @param entryName The glyph's name inside the ZIP
+   * @param png The encoded glyph image
+   * @param workDir The job's working directory, available to the vectorizer for scratch files
+   * @return The traced outline, or null if the glyph could not be decoded or traced
+   * @throws IOException If the image cannot be decoded, or tracing ran past its deadline
+   * @throws InterruptedException If the job is cancelled while the glyph is being traced
    */
-  private BufferedImage trimWhitespace(BufferedImage src) {
-    int width = src.getWidth(), height = src.getHeight();
-    int minX = width, minY = height, maxX = 0, maxY = 0;
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        if (!isWhite(src.getRGB(x, y))) {
-          minX = Math.min(minX, x);
-          minY = Math.min(minY, y);
-          maxX = Math.max(maxX, x);
-          maxY = Math.max(maxY, y);
-        }
-      }
+  private GlyphOutline vectorizeGlyph(String entryName, byte[] png, File workDir) throws IOException, InterruptedException {
+    long decodeStart = System.nanoTime();
+    BufferedImage pngImage = ImageIO.read(new ByteArrayInputStream(png));
+    if (pngImage == null) {
+      logger.warn("Skipping unreadable glyph image: {}", entryName);
+      return null;
     }
-    if (maxX < minX || maxY < minY) {
-      return src;
+
+    // ────── Trim off all‑white border and threshold to a packed 1-bit bitmap ──────
+    GlyphBitmap cropped = GlyphBitmap.fromImage(pngImage);
+    long vectorizeStart = System.nanoTime();
+    metrics.record(PipelineMetrics.Step.DECODE, vectorizeStart - decodeStart);
+
+    String baseName = entryName.substring(0, entryName.lastIndexOf('.'));
+    try {
+      GlyphOutline outline = vectorizer.vectorize(cropped, workDir, baseName);
+      metrics.record(PipelineMetrics.Step.VECTORIZE, System.nanoTime() - vectorizeStart);
+      return outline;
+    } catch (ProcessDeadline.ExpiredException e) {
+      // A glyph that hangs the tracer points at a bad upload: fail the job rather than skip it
+      throw e;
+    } catch (IOException e) {
+      // A glyph that fails to trace is left out of the font rather than failing the whole job
+      logger.warn("Vectorization failed for {}: {}", entryName, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Moves the job to its next stage, unless the watchdog has interrupted it in the meantime.
+   */
+  private static void enterStage(JobProgress progress, JobProgress.Stage stage) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException("Interrupted before stage " + stage);
     }
-    return src.getSubimage(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    progress.enterStage(stage);
   }
 
   /**
-   * Determines if a pixel is white or near-white.
-   * Used by the trimWhitespace method to identify areas to crop.
+   * Links a cached font into the job's staging directory. Linking rather than referencing the
+   * cached font keeps cache eviction from pulling it away later; if eviction already deleted it
+   * between the lookup and the link, the upload is processed like a cache miss.
+   *
+   * @return true if the font was linked, false if it has been evicted
+   */
+  private static boolean linkCachedFont(JobWorkspace workspace, File cachedTtf) throws IOException {
+    try {
+      workspace.link(cachedTtf, FONT_NAME);
+      return true;
+    } catch (NoSuchFileException e) {
+      logger.info("Cached font {} was evicted before it could be used; processing the upload", cachedTtf.getName());
+      return false;
+    }
+  }
+
+  /**
+   * Parses the Unicode code point from a glyph image name of the form "glyph_X.png".
    * 
-   * @param rgb The RGB value of the pixel
-   * @return true if the pixel is white or near-white, false otherwise
+   * @param fileName The file name to parse
+   * @return The code point, or -1 if the name does not follow the glyph naming convention
    */
-  private boolean isWhite(int rgb) {
-    int r = (rgb >> 16) & 0xFF;
-    int g = (rgb >> 8) & 0xFF;
-    int b = rgb & 0xFF;
-    return r > 245 && g > 245 && b > 245;
+  static int codepointOf(String fileName) {
+    Matcher matcher = GLYPH_FILE_NAME.matcher(fileName);
+    if (!matcher.matches()) {
+      return -1;
+    }
+    try {
+      int codepoint = Integer.parseInt(matcher.group(1));
+      return Character.isValidCodePoint(codepoint) ? codepoint : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Input stream that keeps track of the time spent reading from the underlying stream.
+   */
+  private static final class TimedInputStream extends FilterInputStream {
+    private long readNanos;
+
+    TimedInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      long start = System.nanoTime();
+      int b = super.read();
+      readNanos += System.nanoTime() - start;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      long start = System.nanoTime();
+      int n = super.read(buffer, offset, length);
+      readNanos += System.nanoTime() - start;
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // Skipped bytes must still pass through the digest below
+      return Math.max(0, read(new byte[(int) Math.min(n, 8192)]));
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package backend.controller;
+
+import backend.font.WoffWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Outcome of a font generation job.
+ */
+public class FontResult {
+
+  /**
+   * Formats a generated font can be downloaded in.
+   */
+  public enum Format {
+    /** The TrueType file as assembled */
+    TTF("ttf", "application/octet-stream"),
+    /** WOFF 1.0, the TrueType tables compressed with zlib */
+    WOFF("woff", "font/woff");
+
+    private final String extension;
+    private final String mediaType;
+
+    Format(String extension, String mediaType) {
+      this.extension = extension;
+      this.mediaType = mediaType;
+    }
+
+    public String getExtension() {
+      return extension;
+    }
+
+    public String getMediaType() {
+      return mediaType;
+    }
+  }
+
+  private static final String DIGEST_EXTENSION = "sha256";
+  private static final Pattern HEX_DIGEST = Pattern.compile("[0-9a-f]{64}");
+
+  private final File ttfFile;
+  private final boolean cacheHit;
+  private volatile String digest;
+
+  /**
+   * @param ttfFile The generated font
+   * @param cacheHit true if the font was served from the font result cache
+   */
+  public FontResult(File ttfFile, boolean cacheHit) {
+    this.ttfFile = ttfFile;
+    this.cacheHit = cacheHit;
+  }
+
+  public File getTtfFile() {
+    return ttfFile;
+  }
+
+  public boolean isCacheHit() {
+    return cacheHit;
+  }
+
+  /**
+   * Returns the font in the given format. Other formats than TTF are converted from the TTF on
+   * first use and kept next to it, so every later download is served from disk.
+   *
+   * @param format The format to download
+   * @return The font file in that format
+   * @throws IOException If the font cannot be read or converted
+   */
+  public File getFile(Format format) throws IOException {
+    if (format == Format.TTF) {
+      return ttfFile;
+    }
+    File converted = sibling(ttfFile, format.getExtension());
+    if (!converted.exists()) {
+      writeAtomically(converted, WoffWriter.write(Files.readAllBytes(ttfFile.toPath())));
+    }
+    return converted;
+  }
+
+  /**
+   * @param format A download format
+   * @return true if the font exists in that format without converting it first
+   */
+  public boolean isAvailable(Format format) {
+    return format == Format.TTF ? ttfFile.exists() : sibling(ttfFile, format.getExtension()).exists();
+  }
+
+  /**
+   * Returns the SHA-256 of the font file. Identical fonts have the same digest whichever job
+   * produced them, so it serves as a strong ETag.
+   *
+   * The digest is stored next to the font when the job publishes it (see
+   * {@link #writeDigest(File)}), so downloads of stored results only read that file. Results
+   * published without one get it computed and stored on first use.
+   *
+   * @return Hex digest of the font contents
+   * @throws IOException If the font file cannot be read
+   */
+  public String getDigest() throws IOException {
+    String value = digest;
+    if (value == null) {
+      File digestFile = sibling(ttfFile, DIGEST_EXTENSION);
+      try {
+        value = Files.readString(digestFile.toPath(), StandardCharsets.US_ASCII).trim();
+      } catch (NoSuchFileException e) {
+        value = null;
+      }
+      if (value == null || !HEX_DIGEST.matcher(value).matches()) {
+        value = computeDigest(ttfFile);
+        writeAtomically(digestFile, value.getBytes(StandardCharsets.US_ASCII));
+      }
+      digest = value;
+    }
+    return value;
+  }
+
+  /**
+   * Computes a font's digest and stores it next to the font, for {@link #getDigest()}.
+   *
+   * @param ttfFile A font about to be published
+   * @throws IOException If the font cannot be read or the digest cannot be written
+   */
+  public static void writeDigest(File ttfFile) throws IOException {
+    Files.writeString(sibling(ttfFile, DIGEST_EXTENSION).toPath(), computeDigest(ttfFile), StandardCharsets.US_ASCII);
+  }
+
+  private static String computeDigest(File ttfFile) throws IOException {
+    MessageDigest sha256;
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+    try (InputStream in = new DigestInputStream(Files.newInputStream(ttfFile.toPath()), sha256)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(sha256.digest());
+  }
+
+  /**
+   * Writes a file under a temporary name first, so a concurrent download never sees half a file.
+   */
+  private static void writeAtomically(File file, byte[] content) throws IOException {
+    File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try {
+      Files.write(temp.toPath(), content);
+      Files.move(temp.toPath(), file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      temp.delete();
+    }
+  }
+
+  /**
+   * @return The file next to the font with the same base name and the given extension
+   */
+  private static File sibling(File ttfFile, String extension) {
+    String name = ttfFile.getName();
+    String baseName = name.endsWith(".ttf") ? name.substring(0, name.length() - 4) : name;
+    return new File(ttfFile.getParentFile(), baseName + "." + extension);
+  }
+}
@@ -0,0 +1,113 @@
+package backend.controller;
+
+import backend.pipeline.ArchiveWriter;
+import backend.pipeline.FontJobExecutor;
+import backend.pipeline.FontResultCache;
+import backend.pipeline.JobWatchdog;
+import backend.pipeline.StorageManager;
+import backend.pipeline.SubsetCache;
+import backend.pipeline.WorkspaceManager;
+import backend.vectorize.OutlineCache;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller that reports runtime counters of the font pipeline.
+ */
+@RestController
+@RequestMapping("/api")
+public class StatsController {
+
+  @Autowired
+  private OutlineCache outlineCache;
+
+  @Autowired
+  private FontResultCache fontResultCache;
+
+  @Autowired
+  private SubsetCache subsetCache;
+
+  @Autowired
+  private FontJobExecutor fontJobExecutor;
+
+  @Autowired
+  private JobWatchdog jobWatchdog;
+
+  @Autowired
+  private ArchiveWriter archiveWriter;
+
+  @Autowired
+  private WorkspaceManager workspaceManager;
+
+  @Autowired
+  private StorageManager storageManager;
+
+  /**
+   * Returns the current pipeline counters as JSON.
+   *
+   * @return Counters grouped by pipeline component
+   */
+  @GetMapping("/stats")
+  public Map<String, Object> stats() {
+    Map<String, Object> outlines = new LinkedHashMap<>();
+    outlines.put("hits", outlineCache.getHits());
+    outlines.put("spillHits", outlineCache.getSpillHits());
+    outlines.put("misses", outlineCache.getMisses());
+    outlines.put("heapEntries", outlineCache.getHeapEntries());
+    outlines.put("spillBytes", outlineCache.getSpillBytes());
+
+    Map<String, Object> fonts = new LinkedHashMap<>();
+    fonts.put("hits", fontResultCache.getHits());
+    fonts.put("misses", fontResultCache.getMisses());
+    fonts.put("evictions", fontResultCache.getEvictions());
+
+    Map<String, Object> subsets = new LinkedHashMap<>();
+    subsets.put("hits", subsetCache.getHits());
+    subsets.put("misses", subsetCache.getMisses());
+    subsets.put("evictions", subsetCache.getEvictions());
+    subsets.put("bytes", subsetCache.getBytes());
+
+    Map<String, Object> jobs = new LinkedHashMap<>();
+    jobs.put("active", fontJobExecutor.getActiveCount());
+    jobs.put("queued", fontJobExecutor.getQueuedCount());
+    jobs.put("rejected", fontJobExecutor.getRejectedCount());
+    jobs.put("poolSize", fontJobExecutor.getPoolSize());
+    jobs.put("slowStages", jobWatchdog.getSlowStages());
+    jobs.put("timedOut", jobWatchdog.getTimedOutJobs());
+
+    Map<String, Object> archive = new LinkedHashMap<>();
+    archive.put("queued", archiveWriter.getQueuedCount());
+    archive.put("written", archiveWriter.getWrittenCount());
+    archive.put("writtenBytes", archiveWriter.getWrittenBytes());
+    archive.put("inline", archiveWriter.getInlineCount());
+    archive.put("failed", archiveWriter.getFailedCount());
+
+    Map<String, Object> temp = new LinkedHashMap<>();
+    temp.put("directory", workspaceManager.getTempDirectory().getAbsolutePath());
+    temp.put("usedBytes", workspaceManager.getTempUsageBytes());
+    temp.put("activeWorkspaces", workspaceManager.getActiveWorkspaces());
+    temp.put("orphansDeleted", workspaceManager.getOrphansDeleted());
+
+    Map<String, Object> storage = new LinkedHashMap<>();
+    storage.put("directory", storageManager.getJobsDirectory().getAbsolutePath());
+    storage.put("results", storageManager.getResultCount());
+    storage.put("usedBytes", storageManager.getUsedBytes());
+    storage.put("maxBytes", storageManager.getMaxBytes());
+    storage.put("ageEvictions", storageManager.getEvictions(StorageManager.Reason.AGE));
+    storage.put("sizeEvictions", storageManager.getEvictions(StorageManager.Reason.SIZE));
+
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("jobs", jobs);
+    stats.put("outlineCache", outlines);
+    stats.put("fontCache", fonts);
+    stats.put("subsetCache", subsets);
+    stats.put("archive", archive);
+    stats.put("temp", temp);
+    stats.put("storage", storage);
+    return stats;
+  }
+}
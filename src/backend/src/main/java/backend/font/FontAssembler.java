@@ -0,0 +1,35 @@
+package backend.font;
+
+import backend.vectorize.GlyphOutline;
+import java.io.File;
+import java.io.IOException;
+import java.util.SortedMap;
+
+/**
+ * Final pipeline stage: builds a TrueType font from the traced glyph outlines.
+ *
+ * The implementation in use is selected with the {@code processing.font-assembler} property.
+ * Implementations must be thread-safe, since jobs run concurrently.
+ */
+public interface FontAssembler {
+
+    /**
+     * Builds a TTF font containing one glyph per entry.
+     *
+     * @param glyphs Traced outlines keyed by Unicode code point
+     * @param workDir The job's working directory, usable for intermediate files
+     * @param outputTtf The font file to create
+     * @throws IOException If the font cannot be built
+     * @throws InterruptedException If the job is cancelled while the font is being built
+     */
+    void assemble(SortedMap<Integer, GlyphOutline> glyphs, File workDir, File outputTtf)
+        throws IOException, InterruptedException;
+
+    /**
+     * Identifies this assembler and every setting that affects the fonts it builds. Finished
+     * fonts are only reused from the font result cache for identical settings.
+     *
+     * @return A stable description of the assembler configuration
+     */
+    String getSettings();
+}
@@ -0,0 +1,128 @@
+package backend.font;
+
+import backend.pipeline.ProcessDeadline;
+import backend.vectorize.GlyphOutline;
+import backend.vectorize.PotraceSvg;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.SortedMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link FontAssembler} that writes every outline as an SVG and runs the FontForge
+ * {@code generate_font.py} script over the directory.
+ *
+ * When a {@link FontForgeWorkerPool} is supplied, builds go to a warm resident worker;
+ * if no worker can serve the build, a one-shot FontForge process is started instead.
+ * Either way the build must finish within the build timeout, or FontForge is killed and the
+ * build fails with a {@link ProcessDeadline.ExpiredException}; a build that timed out on a
+ * worker is not retried.
+ */
+public class FontForgeAssembler implements FontAssembler, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontForgeAssembler.class);
+    private static final String FONTFORGE_SCRIPT = "src/main/resources/generate_font.py";
+
+    private final String fontforgePath;
+    private final FontForgeWorkerPool workerPool;
+    private final long buildTimeoutMillis;
+
+    /**
+     * @param fontforgePath Resolved FontForge executable
+     * @param workerPool Pool of resident workers, or null to start FontForge for every build
+     * @param buildTimeoutMillis Time a one-shot FontForge build may take before it is killed
+     */
+    public FontForgeAssembler(String fontforgePath, FontForgeWorkerPool workerPool, long buildTimeoutMillis) {
+        this.fontforgePath = fontforgePath;
+        this.workerPool = workerPool;
+        this.buildTimeoutMillis = buildTimeoutMillis;
+    }
+
+    @Override
+    public String getSettings() {
+        // Resident workers and one-shot processes run the same script and build the same font
+        return "fontforge " + fontforgePath + " script=" + FONTFORGE_SCRIPT;
+    }
+
+    @Override
+    public void assemble(SortedMap<Integer, GlyphOutline> glyphs, File workDir, File outputTtf)
+        throws IOException, InterruptedException {
+        // FontForge imports the glyphs from glyph_<codepoint>.svg files
+        for (Map.Entry<Integer, GlyphOutline> glyph : glyphs.entrySet()) {
+            File svgFile = new File(workDir, "glyph_" + glyph.getKey() + ".svg");
+            Files.write(svgFile.toPath(), PotraceSvg.write(glyph.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (workerPool != null) {
+            try {
+                workerPool.build(workDir, outputTtf);
+                if (outputTtf.exists()) {
+                    logger.info("FontForge processing completed successfully");
+                    return;
+                }
+                logger.warn("FontForge worker reported success but produced no font; retrying with a one-shot process");
+            } catch (FontForgeWorkerPool.FontForgeBuildException | ProcessDeadline.ExpiredException e) {
+                throw e;
+            } catch (IOException e) {
+                logger.warn("FontForge worker unavailable ({}); falling back to a one-shot process", e.getMessage());
+            }
+        }
+
+        runOneShot(workDir, outputTtf);
+    }
+
+    /**
+     * Starts a fresh FontForge process for a single build.
+     */
+    private void runOneShot(File workDir, File outputTtf) throws IOException, InterruptedException {
+        ProcessBuilder ffBuilder = new ProcessBuilder(
+            fontforgePath,
+            "-lang=py",
+            "-script",
+            FONTFORGE_SCRIPT,
+            workDir.getAbsolutePath(),      // directory with SVG files
+            outputTtf.getAbsolutePath()     // output TTF file path
+        );
+        ffBuilder.redirectErrorStream(true);
+        File ffLog = new File(workDir, "fontforge.log");
+        ffBuilder.redirectOutput(ffLog);
+
+        logger.info("Starting FontForge processing...");
+        Process ffProcess = ffBuilder.start();
+        int ffExit;
+        try (ProcessDeadline deadline = ProcessDeadline.start(ffProcess, buildTimeoutMillis, "FontForge build")) {
+            ffExit = deadline.waitFor();
+        }
+
+        if (ffExit != 0 || !outputTtf.exists()) {
+            logger.error("FontForge script failed with exit code: {}", ffExit);
+
+            // Log FontForge output for debugging
+            try (BufferedReader r = new BufferedReader(new FileReader(ffLog))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    logger.error("FontForge LOG: {}", line);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read FontForge log file", e);
+            }
+
+            throw new IOException("FontForge script failed with exit code " + ffExit);
+        }
+
+        logger.info("FontForge processing completed successfully");
+    }
+
+    @Override
+    public void close() {
+        if (workerPool != null) {
+            workerPool.close();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package backend.font;
+
+import backend.pipeline.ProcessDeadline;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of long-lived FontForge processes running {@code fontforge_worker.py}.
+ *
+ * Starting FontForge and its Python runtime dominates the cost of a cold build, so each
+ * worker is started once and then takes BUILD commands over stdin. Workers are:
+ * - started lazily, up to the pool size
+ * - recycled after a fixed number of builds, bounding FontForge's memory growth
+ * - health-checked with PING while idle; unresponsive or dead workers are replaced
+ */
+public class FontForgeWorkerPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontForgeWorkerPool.class);
+    private static final String WORKER_SCRIPT = "src/main/resources/fontforge_worker.py";
+    private static final String REPLY_MARKER = "@@FFW ";
+    private static final long STARTUP_TIMEOUT_SECONDS = 60;
+    private static final long PING_TIMEOUT_SECONDS = 10;
+
+    private final String fontforgePath;
+    private final int size;
+    private final int maxJobsPerWorker;
+    private final long buildTimeoutSeconds;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+    private volatile boolean closed;
+
+    /**
+     * @param fontforgePath Resolved FontForge executable
+     * @param size Maximum number of worker processes
+     * @param maxJobsPerWorker Builds after which a worker is replaced
+     * @param healthCheckSeconds Interval between health checks of idle workers
+     * @param buildTimeoutSeconds Maximum time to wait for a single build reply
+     */
+    public FontForgeWorkerPool(String fontforgePath, int size, int maxJobsPerWorker,
+                               long healthCheckSeconds, long buildTimeoutSeconds) {
+        this.fontforgePath = fontforgePath;
+        this.size = size;
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.buildTimeoutSeconds = buildTimeoutSeconds;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fontforge-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkIdleWorkers,
+            healthCheckSeconds, healthCheckSeconds, TimeUnit.SECONDS);
+        logger.info("FontForge worker pool ready (size {}, recycle after {} builds)", size, maxJobsPerWorker);
+    }
+
+    /**
+     * Builds a font on a pooled worker.
+     *
+     * @param svgDir Directory with glyph_X.svg files
+     * @param outputTtf The font file to create
+     * @throws FontForgeBuildException If FontForge reported an error for this build
+     * @throws ProcessDeadline.ExpiredException If the build did not finish in time; the worker
+     *         is killed
+     * @throws IOException If no healthy worker could complete the build
+     * @throws InterruptedException If interrupted while waiting for a worker or the build
+     */
+    public void build(File svgDir, File outputTtf) throws IOException, InterruptedException {
+        Worker worker = acquire();
+        boolean reusable = false;
+        try {
+            String reply = worker.request("BUILD\t" + svgDir.getAbsolutePath() + "\t" + outputTtf.getAbsolutePath(),
+                buildTimeoutSeconds);
+            worker.jobs++;
+            reusable = true;
+            if (!reply.startsWith("OK")) {
+                throw new FontForgeBuildException(reply);
+            }
+        } finally {
+            release(worker, reusable);
+        }
+    }
+
+    private Worker acquire() throws IOException, InterruptedException {
+        while (true) {
+            if (closed) {
+                throw new IOException("FontForge worker pool is closed");
+            }
+            Worker worker = idle.poll();
+            if (worker != null) {
+                if (worker.isAlive()) {
+                    return worker;
+                }
+                discard(worker);
+                continue;
+            }
+            int current = live.get();
+            if (current < size) {
+                if (live.compareAndSet(current, current + 1)) {
+                    try {
+                        return startWorker();
+                    } catch (IOException | InterruptedException | RuntimeException e) {
+                        live.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+            worker = idle.poll(1, TimeUnit.SECONDS);
+            if (worker != null) {
+                if (worker.isAlive()) {
+                    return worker;
+                }
+                discard(worker);
+            }
+        }
+    }
+
+    private void release(Worker worker, boolean reusable) {
+        if (!reusable || closed || worker.jobs >= maxJobsPerWorker || !worker.isAlive()) {
+            if (reusable && worker.jobs >= maxJobsPerWorker) {
+                logger.debug("Recycling FontForge worker {} after {} builds", worker.id, worker.jobs);
+            }
+            discard(worker);
+            return;
+        }
+        idle.offer(worker);
+    }
+
+    private void discard(Worker worker) {
+        worker.destroy();
+        live.decrementAndGet();
+    }
+
+    private Worker startWorker() throws IOException, InterruptedException {
+        String scriptDir = new File(WORKER_SCRIPT).getAbsoluteFile().getParent();
+        ProcessBuilder pb = new ProcessBuilder(
+            fontforgePath,
+            "-lang=py",
+            "-script",
+            WORKER_SCRIPT,
+            scriptDir
+        );
+        pb.redirectErrorStream(true);
+        Worker worker = new Worker(workerIds.incrementAndGet(), pb.start());
+        try {
+            String ready = worker.awaitReply(STARTUP_TIMEOUT_SECONDS);
+            if (!ready.startsWith("OK")) {
+                throw new IOException("FontForge worker failed to start: " + ready);
+            }
+        } catch (ProcessDeadline.ExpiredException e) {
+            // A slow startup is a worker problem, not a build timeout: let the caller fall back
+            worker.destroy();
+            throw new IOException("FontForge worker failed to start: " + e.getMessage());
+        } catch (IOException | InterruptedException e) {
+            worker.destroy();
+            throw e;
+        }
+        logger.info("Started FontForge worker {}", worker.id);
+        return worker;
+    }
+
+    /**
+     * Pings every idle worker and replaces the ones that do not answer.
+     */
+    private void checkIdleWorkers() {
+        List<Worker> checked = new ArrayList<>();
+        idle.drainTo(checked);
+        for (int i = 0; i < checked.size(); i++) {
+            Worker worker = checked.get(i);
+            boolean healthy;
+            try {
+                healthy = worker.isAlive() && worker.request("PING", PING_TIMEOUT_SECONDS).startsWith("OK");
+            } catch (IOException e) {
+                healthy = false;
+            } catch (InterruptedException e) {
+                // Shutting down: hand the unchecked workers back so close() can stop them
+                Thread.currentThread().interrupt();
+                idle.addAll(checked.subList(i, checked.size()));
+                return;
+            }
+            if (healthy && !closed) {
+                idle.offer(worker);
+            } else {
+                logger.warn("FontForge worker {} failed its health check; discarding", worker.id);
+                discard(worker);
+            }
+        }
+    }
+
+    /**
+     * @return Number of worker processes currently running
+     */
+    public int getLiveWorkers() {
+        return live.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        healthChecker.shutdownNow();
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            discard(worker);
+        }
+    }
+
+    /**
+     * Raised when a worker is healthy but FontForge could not build the requested font.
+     */
+    public static class FontForgeBuildException extends IOException {
+        public FontForgeBuildException(String message) {
+            super("FontForge build failed: " + message);
+        }
+    }
+
+    /**
+     * One resident FontForge process. Its output is pumped by a reader thread: reply lines go
+     * into a queue, everything else FontForge prints is logged.
+     */
+    private static final class Worker {
+        private final int id;
+        private final Process process;
+        private final Writer stdin;
+        private final BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+        private int jobs;
+
+        Worker(int id, Process process) {
+            this.id = id;
+            this.process = process;
+            this.stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+            Thread reader = new Thread(this::pumpOutput, "fontforge-worker-" + id);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void pumpOutput() {
+            try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith(REPLY_MARKER)) {
+                        replies.offer(line.substring(REPLY_MARKER.length()));
+                    } else {
+                        logger.debug("FontForge worker {}: {}", id, line);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("FontForge worker {} output closed: {}", id, e.getMessage());
+            }
+        }
+
+        String request(String command, long timeoutSeconds) throws IOException, InterruptedException {
+            replies.clear();
+            stdin.write(command);
+            stdin.write('\n');
+            stdin.flush();
+            return awaitReply(timeoutSeconds);
+        }
+
+        String awaitReply(long timeoutSeconds) throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (true) {
+                String reply = replies.poll(200, TimeUnit.MILLISECONDS);
+                if (reply != null) {
+                    return reply;
+                }
+                if (!process.isAlive() && replies.isEmpty()) {
+                    throw new IOException("FontForge worker " + id + " exited with code " + process.exitValue());
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new ProcessDeadline.ExpiredException("FontForge worker " + id + " did not reply within " + timeoutSeconds + "s");
+                }
+            }
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void destroy() {
+            try {
+                stdin.close();
+            } catch (IOException e) {
+                // The process is being discarded anyway
+            }
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    ProcessDeadline.destroyTree(process);
+                }
+            } catch (InterruptedException e) {
+                ProcessDeadline.destroyTree(process);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package backend.font;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Cuts a TrueType font down to the glyphs of a set of code points.
+ *
+ * Glyph ids are kept as they are: the outlines of glyphs that are not needed are emptied
+ * instead of removed, so hmtx, post, kerning and every other table that refers to glyph ids
+ * stays valid without being rewritten. The outlines make up nearly all of a font's size; what
+ * remains per dropped glyph is a loca entry and its metrics, a few bytes. The subset keeps:
+ * - glyph 0 (.notdef)
+ * - the glyphs the cmap maps the requested code points to, and the components of composite
+ *   glyphs among them
+ * The cmap is rebuilt with only the requested code points, as a format 4 subtable and, for code
+ * points beyond the Basic Multilingual Plane, a format 12 subtable. A DSIG table is dropped,
+ * since the signature no longer matches.
+ */
+public final class FontSubsetter {
+
+    private static final int COMPONENT_ARGS_ARE_WORDS = 0x0001;
+    private static final int COMPONENT_HAVE_SCALE = 0x0008;
+    private static final int COMPONENT_MORE = 0x0020;
+    private static final int COMPONENT_X_AND_Y_SCALE = 0x0040;
+    private static final int COMPONENT_TWO_BY_TWO = 0x0080;
+
+    private FontSubsetter() {
+    }
+
+    /**
+     * @param ttf A complete TrueType font file
+     * @param codepoints The code points to keep; those the font has no glyph for are ignored
+     * @return The subset font file
+     * @throws IOException If the font is not a TrueType font with glyf outlines, or is malformed
+     */
+    public static byte[] subset(byte[] ttf, Set<Integer> codepoints) throws IOException {
+        try {
+            return subset(readTables(ttf), codepoints);
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Malformed font: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] subset(SortedMap<String, byte[]> tables, Set<Integer> codepoints) throws IOException {
+        for (String required : new String[] {"cmap", "glyf", "head", "loca", "maxp"}) {
+            if (!tables.containsKey(required)) {
+                throw new IOException("Not a TrueType font with glyf outlines: no " + required + " table");
+            }
+        }
+        byte[] head = tables.get("head").clone();
+        boolean longOffsets = ByteBuffer.wrap(head).getShort(50) != 0;
+        int numGlyphs = ByteBuffer.wrap(tables.get("maxp")).getShort(4) & 0xFFFF;
+        int[] loca = readLoca(tables.get("loca"), numGlyphs, longOffsets);
+        byte[] glyf = tables.get("glyf");
+
+        // Map the requested code points and collect their glyphs, with composite components
+        SortedMap<Integer, Integer> mapping = new TreeMap<>();
+        Map<Integer, Integer> cmap = readCmap(tables.get("cmap"), codepoints);
+        for (int codepoint : codepoints) {
+            Integer glyph = cmap.get(codepoint);
+            if (glyph != null && glyph > 0 && glyph < numGlyphs) {
+                mapping.put(codepoint, glyph);
+            }
+        }
+        BitSet keep = new BitSet(numGlyphs);
+        Deque<Integer> pending = new ArrayDeque<>(mapping.values());
+        pending.push(0);
+        while (!pending.isEmpty()) {
+            int glyph = pending.pop();
+            if (keep.get(glyph)) {
+                continue;
+            }
+            keep.set(glyph);
+            addComponents(glyf, loca[glyph], loca[glyph + 1], numGlyphs, pending);
+        }
+
+        // Copy the kept outlines; dropped glyphs become empty, which needs no outline data
+        ByteArrayOutputStream newGlyf = new ByteArrayOutputStream();
+        ByteBuffer newLoca = ByteBuffer.allocate(4 * (numGlyphs + 1));
+        for (int glyph = 0; glyph < numGlyphs; glyph++) {
+            newLoca.putInt(newGlyf.size());
+            if (keep.get(glyph)) {
+                int length = loca[glyph + 1] - loca[glyph];
+                newGlyf.write(glyf, loca[glyph], length);
+                newGlyf.write(new byte[SfntWriter.padded(length) - length], 0, SfntWriter.padded(length) - length);
+            }
+        }
+        newLoca.putInt(newGlyf.size());
+        // indexToLocFormat: long offsets
+        ByteBuffer.wrap(head).putShort(50, (short) 1);
+
+        tables.put("head", head);
+        tables.put("glyf", newGlyf.toByteArray());
+        tables.put("loca", newLoca.array());
+        tables.put("cmap", buildCmap(mapping));
+        tables.remove("DSIG");
+        return SfntWriter.write(tables);
+    }
+
+    private static SortedMap<String, byte[]> readTables(byte[] ttf) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(ttf);
+        int version = in.getInt(0);
+        if (version != 0x00010000 && version != 0x74727565) {
+            throw new IOException("Not a TrueType font");
+        }
+        int numTables = in.getShort(4) & 0xFFFF;
+        SortedMap<String, byte[]> tables = new TreeMap<>();
+        for (int i = 0; i < numTables; i++) {
+            int entry = 12 + 16 * i;
+            byte[] tag = new byte[4];
+            in.get(entry, tag);
+            int offset = in.getInt(entry + 8);
+            int length = in.getInt(entry + 12);
+            byte[] data = new byte[length];
+            in.get(offset, data);
+            tables.put(new String(tag, StandardCharsets.US_ASCII), data);
+        }
+        return tables;
+    }
+
+    private static int[] readLoca(byte[] loca, int numGlyphs, boolean longOffsets) {
+        ByteBuffer in = ByteBuffer.wrap(loca);
+        int[] offsets = new int[numGlyphs + 1];
+        for (int i = 0; i <= numGlyphs; i++) {
+            offsets[i] = longOffsets ? in.getInt(4 * i) : 2 * (in.getShort(2 * i) & 0xFFFF);
+        }
+        return offsets;
+    }
+
+    /**
+     * Queues the component glyphs of a composite glyph.
+     */
+    private static void addComponents(byte[] glyf, int start, int end, int numGlyphs, Deque<Integer> pending) {
+        if (end - start < 10) {
+            // Empty glyph
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(glyf);
+        if (in.getShort(start) >= 0) {
+            // Simple glyph
+            return;
+        }
+        int position = start + 10;
+        int flags;
+        do {
+            flags = in.getShort(position) & 0xFFFF;
+            int component = in.getShort(position + 2) & 0xFFFF;
+            if (component < numGlyphs) {
+                pending.push(component);
+            }
+            position += 4 + ((flags & COMPONENT_ARGS_ARE_WORDS) != 0 ? 4 : 2);
+            if ((flags & COMPONENT_HAVE_SCALE) != 0) {
+                position += 2;
+            } else if ((flags & COMPONENT_X_AND_Y_SCALE) != 0) {
+                position += 4;
+            } else if ((flags & COMPONENT_TWO_BY_TWO) != 0) {
+                position += 8;
+            }
+        } while ((flags & COMPONENT_MORE) != 0 && position < end);
+    }
+
+    /**
+     * Reads the code point to glyph mapping from every format 4 and format 12 subtable; format 12
+     * groups can span whole planes, so only the requested code points are looked up in them.
+     */
+    private static Map<Integer, Integer> readCmap(byte[] cmap, Set<Integer> codepoints) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(cmap);
+        int numTables = in.getShort(2) & 0xFFFF;
+        Map<Integer, Integer> mapping = new TreeMap<>();
+        boolean supported = false;
+        for (int i = 0; i < numTables; i++) {
+            int subtable = in.getInt(4 + 8 * i + 4);
+            int format = in.getShort(subtable) & 0xFFFF;
+            if (format == 4) {
+                readFormat4(in, subtable, mapping);
+                supported = true;
+            } else if (format == 12) {
+                readFormat12(in, subtable, codepoints, mapping);
+                supported = true;
+            }
+        }
+        if (!supported) {
+            throw new IOException("No format 4 or format 12 cmap subtable");
+        }
+        return mapping;
+    }
+
+    private static void readFormat4(ByteBuffer in, int subtable, Map<Integer, Integer> mapping) {
+        int segCount = (in.getShort(subtable + 6) & 0xFFFF) / 2;
+        int endCodes = subtable + 14;
+        int startCodes = endCodes + 2 * segCount + 2;
+        int idDeltas = startCodes + 2 * segCount;
+        int idRangeOffsets = idDeltas + 2 * segCount;
+        for (int segment = 0; segment < segCount; segment++) {
+            int end = in.getShort(endCodes + 2 * segment) & 0xFFFF;
+            int start = in.getShort(startCodes + 2 * segment) & 0xFFFF;
+            int delta = in.getShort(idDeltas + 2 * segment);
+            int rangeOffsetPosition = idRangeOffsets + 2 * segment;
+            int rangeOffset = in.getShort(rangeOffsetPosition) & 0xFFFF;
+            for (int codepoint = start; codepoint <= end && codepoint != 0xFFFF; codepoint++) {
+                int glyph;
+                if (rangeOffset == 0) {
+                    glyph = (codepoint + delta) & 0xFFFF;
+                } else {
+                    glyph = in.getShort(rangeOffsetPosition + rangeOffset + 2 * (codepoint - start)) & 0xFFFF;
+                    glyph = glyph == 0 ? 0 : (glyph + delta) & 0xFFFF;
+                }
+                if (glyph != 0) {
+                    mapping.putIfAbsent(codepoint, glyph);
+                }
+            }
+        }
+    }
+
+    private static void readFormat12(ByteBuffer in, int subtable, Set<Integer> codepoints,
+            Map<Integer, Integer> mapping) {
+        int numGroups = in.getInt(subtable + 12);
+        for (int group = 0; group < numGroups; group++) {
+            int entry = subtable + 16 + 12 * group;
+            int start = in.getInt(entry);
+            int end = in.getInt(entry + 4);
+            int glyph = in.getInt(entry + 8);
+            for (int codepoint : codepoints) {
+                if (codepoint >= start && codepoint <= end) {
+                    mapping.putIfAbsent(codepoint, glyph + codepoint - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a cmap for the subset: format 4 for the Basic Multilingual Plane, shared by the
+     * Unicode and Windows encodings, plus format 12 for all code points if any lies beyond it.
+     */
+    private static byte[] buildCmap(SortedMap<Integer, Integer> mapping) {
+        // Runs of consecutive code points mapped to consecutive glyphs
+        int[][] runs = runsOf(mapping);
+        int bmpRuns = 0;
+        for (int[] run : runs) {
+            if (run[1] <= 0xFFFF) {
+                bmpRuns++;
+            }
+        }
+        boolean supplementary = bmpRuns < runs.length;
+
+        int segCount = bmpRuns + 1;
+        int format4Length = 16 + 8 * segCount;
+        ByteBuffer format4 = ByteBuffer.allocate(format4Length);
+        int entrySelector = Integer.numberOfTrailingZeros(Integer.highestOneBit(segCount));
+        int searchRange = 2 * (1 << entrySelector);
+        format4.putShort((short) 4);
+        format4.putShort((short) format4Length);
+        format4.putShort((short) 0);
+        format4.putShort((short) (2 * segCount));
+        format4.putShort((short) searchRange);
+        format4.putShort((short) entrySelector);
+        format4.putShort((short) (2 * segCount - searchRange));
+        for (int i = 0; i < bmpRuns; i++) {
+            format4.putShort((short) runs[i][1]);
+        }
+        format4.putShort((short) 0xFFFF);
+        format4.putShort((short) 0);
+        for (int i = 0; i < bmpRuns; i++) {
+            format4.putShort((short) runs[i][0]);
+        }
+        format4.putShort((short) 0xFFFF);
+        for (int i = 0; i < bmpRuns; i++) {
+            format4.putShort((short) (runs[i][2] - runs[i][0]));
+        }
+        format4.putShort((short) 1);
+        for (int i = 0; i < segCount; i++) {
+            format4.putShort((short) 0);
+        }
+
+        ByteBuffer format12 = null;
+        if (supplementary) {
+            format12 = ByteBuffer.allocate(16 + 12 * runs.length);
+            format12.putShort((short) 12);
+            format12.putShort((short) 0);
+            format12.putInt(format12.capacity());
+            format12.putInt(0);
+            format12.putInt(runs.length);
+            for (int[] run : runs) {
+                format12.putInt(run[0]);
+                format12.putInt(run[1]);
+                format12.putInt(run[2]);
+            }
+        }
+
+        // Encoding records, sorted by platform and encoding id
+        int records = supplementary ? 4 : 2;
+        int format4Offset = 4 + 8 * records;
+        int format12Offset = format4Offset + format4Length;
+        ByteBuffer b = ByteBuffer.allocate(format12Offset + (supplementary ? format12.capacity() : 0));
+        b.putShort((short) 0);
+        b.putShort((short) records);
+        putRecord(b, 0, 3, format4Offset);
+        if (supplementary) {
+            putRecord(b, 0, 4, format12Offset);
+        }
+        putRecord(b, 3, 1, format4Offset);
+        if (supplementary) {
+            putRecord(b, 3, 10, format12Offset);
+        }
+        b.put(format4.array());
+        if (supplementary) {
+            b.put(format12.array());
+        }
+        return b.array();
+    }
+
+    private static void putRecord(ByteBuffer b, int platformId, int encodingId, int offset) {
+        b.putShort((short) platformId);
+        b.putShort((short) encodingId);
+        b.putInt(offset);
+    }
+
+    /**
+     * @return {start code point, end code point, start glyph} of every run, in code point order;
+     *         runs never cross the end of the Basic Multilingual Plane
+     */
+    private static int[][] runsOf(SortedMap<Integer, Integer> mapping) {
+        int[][] runs = new int[mapping.size()][];
+        int count = 0;
+        for (Map.Entry<Integer, Integer> entry : mapping.entrySet()) {
+            int codepoint = entry.getKey();
+            int glyph = entry.getValue();
+            int[] last = count > 0 ? runs[count - 1] : null;
+            if (last != null && codepoint == last[1] + 1 && codepoint != 0x10000
+                    && glyph == last[2] + codepoint - last[0]) {
+                last[1] = codepoint;
+            } else {
+                runs[count++] = new int[] {codepoint, codepoint, glyph};
+            }
+        }
+        int[][] result = new int[count][];
+        System.arraycopy(runs, 0, result, 0, count);
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+package backend.font;
+
+import backend.vectorize.GlyphOutline;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.SortedMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link FontAssembler} that writes the TTF directly with {@link TrueTypeWriter}, without
+ * starting FontForge or any other external process.
+ *
+ * Each glyph is scaled so the height of its cropped bitmap fills the em box (descender to
+ * ascender), like FontForge's SVG import, and gets an advance width of its traced width plus
+ * a fixed side bearing on each side. Cubic curves are approximated by quadratic splines.
+ */
+public class NativeFontAssembler implements FontAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(NativeFontAssembler.class);
+
+    private static final String FAMILY_NAME = "Handwriting";
+    private static final int SIDE_BEARING = 50;
+    private static final int SPACE_ADVANCE = 300;
+    private static final double CURVE_TOLERANCE = 1.0;
+    private static final int MAX_CURVE_SPLITS = 6;
+
+    @Override
+    public String getSettings() {
+        return "native-ttf family=" + FAMILY_NAME + " sidebearing=" + SIDE_BEARING + " space=" + SPACE_ADVANCE
+            + " tolerance=" + CURVE_TOLERANCE + " splits=" + MAX_CURVE_SPLITS;
+    }
+
+    @Override
+    public void assemble(SortedMap<Integer, GlyphOutline> glyphs, File workDir, File outputTtf) throws IOException {
+        Files.write(outputTtf.toPath(), build(glyphs));
+        logger.info("Native font assembly completed with {} glyphs", glyphs.size());
+    }
+
+    /**
+     * Builds the TTF bytes for a glyph set.
+     *
+     * @param glyphs Traced outlines keyed by Unicode code point
+     * @return The complete font file
+     */
+    public byte[] build(SortedMap<Integer, GlyphOutline> glyphs) {
+        TrueTypeWriter writer = new TrueTypeWriter(FAMILY_NAME);
+        for (Map.Entry<Integer, GlyphOutline> entry : glyphs.entrySet()) {
+            if (entry.getKey() > 0xFFFF) {
+                logger.warn("Skipping glyph outside the Basic Multilingual Plane: U+{}",
+                    Integer.toHexString(entry.getKey()).toUpperCase());
+                continue;
+            }
+            writer.addGlyph(entry.getKey(), toGlyph(entry.getValue()));
+        }
+        // Handwriting sets usually have no space glyph; text is unreadable without one
+        if (!glyphs.containsKey((int) ' ')) {
+            writer.addGlyph(' ', new TrueTypeWriter.Glyph(SPACE_ADVANCE));
+        }
+        return writer.write();
+    }
+
+    private TrueTypeWriter.Glyph toGlyph(GlyphOutline outline) {
+        int height = Math.max(1, outline.getHeight());
+        double scale = (double) (TrueTypeWriter.ASCENT + TrueTypeWriter.DESCENT) / height;
+        TrueTypeWriter.Glyph glyph = new TrueTypeWriter.Glyph(
+            (int) Math.round(outline.getWidth() * scale) + 2 * SIDE_BEARING);
+
+        byte[] ops = outline.getOps();
+        double[] c = outline.getCoords();
+        TrueTypeWriter.Contour contour = null;
+        double lastX = 0, lastY = 0;
+        int ci = 0;
+        for (byte op : ops) {
+            switch (op) {
+                case GlyphOutline.MOVE_TO:
+                    finishContour(glyph, contour);
+                    contour = new TrueTypeWriter.Contour();
+                    lastX = fontX(c[ci++], scale);
+                    lastY = fontY(c[ci++], height, scale);
+                    contour.add((int) Math.round(lastX), (int) Math.round(lastY), true);
+                    break;
+                case GlyphOutline.LINE_TO:
+                    lastX = fontX(c[ci++], scale);
+                    lastY = fontY(c[ci++], height, scale);
+                    if (contour != null) {
+                        contour.add((int) Math.round(lastX), (int) Math.round(lastY), true);
+                    }
+                    break;
+                case GlyphOutline.CURVE_TO: {
+                    double x1 = fontX(c[ci++], scale), y1 = fontY(c[ci++], height, scale);
+                    double x2 = fontX(c[ci++], scale), y2 = fontY(c[ci++], height, scale);
+                    double x3 = fontX(c[ci++], scale), y3 = fontY(c[ci++], height, scale);
+                    if (contour != null) {
+                        addCubic(contour, lastX, lastY, x1, y1, x2, y2, x3, y3, 0);
+                    }
+                    lastX = x3;
+                    lastY = y3;
+                    break;
+                }
+                default:
+                    finishContour(glyph, contour);
+                    contour = null;
+                    break;
+            }
+        }
+        finishContour(glyph, contour);
+        return glyph;
+    }
+
+    private void finishContour(TrueTypeWriter.Glyph glyph, TrueTypeWriter.Contour contour) {
+        if (contour == null) {
+            return;
+        }
+        contour.close();
+        // Outlines wind outer contours counter-clockwise (y up); TrueType wants clockwise
+        contour.reverse();
+        glyph.addContour(contour);
+    }
+
+    private static double fontX(double x, double scale) {
+        return SIDE_BEARING + x * scale;
+    }
+
+    private static double fontY(double y, int height, double scale) {
+        return (height - y) * scale - TrueTypeWriter.DESCENT;
+    }
+
+    /**
+     * Approximates a cubic Bezier with quadratic segments, halving it until the
+     * single-quadratic error bound drops below {@link #CURVE_TOLERANCE} font units.
+     */
+    private void addCubic(TrueTypeWriter.Contour contour,
+                          double x0, double y0, double x1, double y1,
+                          double x2, double y2, double x3, double y3, int depth) {
+        double ex = x3 - 3 * x2 + 3 * x1 - x0;
+        double ey = y3 - 3 * y2 + 3 * y1 - y0;
+        double error = Math.sqrt(ex * ex + ey * ey) * Math.sqrt(3) / 36;
+
+        if (error <= CURVE_TOLERANCE || depth >= MAX_CURVE_SPLITS) {
+            double qx = (3 * (x1 + x2) - x0 - x3) / 4;
+            double qy = (3 * (y1 + y2) - y0 - y3) / 4;
+            contour.add((int) Math.round(qx), (int) Math.round(qy), false);
+            contour.add((int) Math.round(x3), (int) Math.round(y3), true);
+            return;
+        }
+
+        // De Casteljau split at t = 0.5
+        double x01 = (x0 + x1) / 2, y01 = (y0 + y1) / 2;
+        double x12 = (x1 + x2) / 2, y12 = (y1 + y2) / 2;
+        double x23 = (x2 + x3) / 2, y23 = (y2 + y3) / 2;
+        double xa = (x01 + x12) / 2, ya = (y01 + y12) / 2;
+        double xb = (x12 + x23) / 2, yb = (y12 + y23) / 2;
+        double xm = (xa + xb) / 2, ym = (ya + yb) / 2;
+        addCubic(contour, x0, y0, x01, y01, xa, ya, xm, ym, depth + 1);
+        addCubic(contour, xm, ym, xb, yb, x23, y23, x3, y3, depth + 1);
+    }
+}
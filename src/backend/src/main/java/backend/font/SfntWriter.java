@@ -0,0 +1,84 @@
+package backend.font;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Packs a set of tables into an sfnt (TrueType) file: offset table, table directory,
+ * 4-byte aligned table data, table checksums and the head.checkSumAdjustment.
+ */
+public final class SfntWriter {
+
+    private static final int TRUETYPE_VERSION = 0x00010000;
+
+    private SfntWriter() {
+    }
+
+    /**
+     * @param tables Table data keyed by four-character tag, in tag order
+     * @return The complete font file
+     */
+    public static byte[] write(SortedMap<String, byte[]> tables) {
+        int numTables = tables.size();
+        int headerLength = 12 + 16 * numTables;
+        int totalLength = headerLength;
+        for (byte[] table : tables.values()) {
+            totalLength += padded(table.length);
+        }
+
+        ByteBuffer font = ByteBuffer.allocate(totalLength);
+        int entrySelector = Integer.numberOfTrailingZeros(Integer.highestOneBit(numTables));
+        int searchRange = 16 * (1 << entrySelector);
+        font.putInt(TRUETYPE_VERSION);
+        font.putShort((short) numTables);
+        font.putShort((short) searchRange);
+        font.putShort((short) entrySelector);
+        font.putShort((short) (numTables * 16 - searchRange));
+
+        int offset = headerLength;
+        int headOffset = -1;
+        for (Map.Entry<String, byte[]> table : tables.entrySet()) {
+            byte[] data = table.getValue();
+            if ("head".equals(table.getKey())) {
+                // checkSumAdjustment must be zero while checksums are computed
+                ByteBuffer.wrap(data).putInt(8, 0);
+                headOffset = offset;
+            }
+            font.put(table.getKey().getBytes(StandardCharsets.US_ASCII));
+            font.putInt((int) checksum(data, 0, data.length));
+            font.putInt(offset);
+            font.putInt(data.length);
+            font.put(offset, data);
+            offset += padded(data.length);
+        }
+
+        byte[] bytes = font.array();
+        if (headOffset >= 0) {
+            long adjustment = (0xB1B0AFBAL - checksum(bytes, 0, bytes.length)) & 0xFFFFFFFFL;
+            ByteBuffer.wrap(bytes).putInt(headOffset + 8, (int) adjustment);
+        }
+        return bytes;
+    }
+
+    /**
+     * Computes the sfnt checksum (sum of big-endian uint32 words, zero padded).
+     */
+    public static long checksum(byte[] data, int offset, int length) {
+        long sum = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i += 4) {
+            long word = 0;
+            for (int j = 0; j < 4; j++) {
+                word = (word << 8) | (i + j < end ? data[i + j] & 0xFF : 0);
+            }
+            sum += word;
+        }
+        return sum & 0xFFFFFFFFL;
+    }
+
+    static int padded(int length) {
+        return (length + 3) & ~3;
+    }
+}
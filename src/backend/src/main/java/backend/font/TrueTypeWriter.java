@@ -0,0 +1,492 @@
+package backend.font;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a TrueType (glyf-flavoured sfnt) font from quadratic glyph contours.
+ *
+ * Emits the tables every renderer expects: cmap, glyf, head, hhea, hmtx, loca, maxp, name,
+ * OS/2 and post. Glyph 0 is an empty .notdef; all other glyphs are mapped through a format 4
+ * cmap, so only code points in the Basic Multilingual Plane are supported. Hinting is not
+ * generated.
+ */
+public class TrueTypeWriter {
+
+    public static final int UNITS_PER_EM = 1000;
+    public static final int ASCENT = 800;
+    public static final int DESCENT = 200;
+
+    // Seconds between the sfnt epoch (1904-01-01) and the Unix epoch
+    private static final long SFNT_EPOCH_OFFSET = 2082844800L;
+
+    private final String familyName;
+    private final TreeMap<Integer, Glyph> glyphs = new TreeMap<>();
+
+    public TrueTypeWriter(String familyName) {
+        this.familyName = familyName;
+    }
+
+    /**
+     * A single glyph: a set of closed quadratic contours plus its advance width.
+     * Outer contours must run clockwise and holes counter-clockwise (y up, font units).
+     */
+    public static final class Glyph {
+        private final int advanceWidth;
+        private final List<Contour> contours = new ArrayList<>();
+        private int xMin, yMin, xMax, yMax;
+
+        public Glyph(int advanceWidth) {
+            this.advanceWidth = advanceWidth;
+        }
+
+        public void addContour(Contour contour) {
+            if (contour.size() < 2) {
+                return;
+            }
+            if (contours.isEmpty()) {
+                xMin = xMax = contour.xs[0];
+                yMin = yMax = contour.ys[0];
+            }
+            for (int i = 0; i < contour.size(); i++) {
+                xMin = Math.min(xMin, contour.xs[i]);
+                xMax = Math.max(xMax, contour.xs[i]);
+                yMin = Math.min(yMin, contour.ys[i]);
+                yMax = Math.max(yMax, contour.ys[i]);
+            }
+            contours.add(contour);
+        }
+
+        public int getAdvanceWidth() {
+            return advanceWidth;
+        }
+
+        public boolean isEmpty() {
+            return contours.isEmpty();
+        }
+
+        int pointCount() {
+            int count = 0;
+            for (Contour contour : contours) {
+                count += contour.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A closed contour of on-curve and off-curve (quadratic control) points.
+     */
+    public static final class Contour {
+        private int[] xs = new int[32];
+        private int[] ys = new int[32];
+        private boolean[] onCurve = new boolean[32];
+        private int size;
+
+        /**
+         * Appends a point, skipping exact repeats of the previous point.
+         */
+        public void add(int x, int y, boolean on) {
+            if (size > 0 && xs[size - 1] == x && ys[size - 1] == y && onCurve[size - 1] == on) {
+                return;
+            }
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+                onCurve = Arrays.copyOf(onCurve, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            onCurve[size] = on;
+            size++;
+        }
+
+        /**
+         * Drops a final point that duplicates the first one; TrueType contours close implicitly.
+         */
+        public void close() {
+            if (size > 1 && xs[size - 1] == xs[0] && ys[size - 1] == ys[0] && onCurve[size - 1] == onCurve[0]) {
+                size--;
+            }
+        }
+
+        /**
+         * Reverses the winding direction of the contour.
+         */
+        public void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int tx = xs[i]; xs[i] = xs[j]; xs[j] = tx;
+                int ty = ys[i]; ys[i] = ys[j]; ys[j] = ty;
+                boolean to = onCurve[i]; onCurve[i] = onCurve[j]; onCurve[j] = to;
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Adds (or replaces) the glyph for a code point.
+     */
+    public void addGlyph(int codepoint, Glyph glyph) {
+        if (codepoint < 0 || codepoint > 0xFFFF) {
+            throw new IllegalArgumentException("Code point outside the BMP: " + codepoint);
+        }
+        glyphs.put(codepoint, glyph);
+    }
+
+    /**
+     * Serializes the font.
+     *
+     * @return The complete TTF file contents
+     */
+    public byte[] write() {
+        // Glyph 0 is .notdef; the rest follow in code point order
+        List<Glyph> ordered = new ArrayList<>(glyphs.size() + 1);
+        ordered.add(new Glyph(UNITS_PER_EM / 2));
+        ordered.addAll(glyphs.values());
+
+        FontMetrics metrics = new FontMetrics(ordered);
+        ByteBuffer[] glyf = buildGlyfAndLoca(ordered);
+
+        TreeMap<String, byte[]> tables = new TreeMap<>();
+        tables.put("OS/2", buildOs2(metrics));
+        tables.put("cmap", buildCmap());
+        tables.put("glyf", glyf[0].array());
+        tables.put("head", buildHead(metrics));
+        tables.put("hhea", buildHhea(metrics, ordered));
+        tables.put("hmtx", buildHmtx(ordered));
+        tables.put("loca", glyf[1].array());
+        tables.put("maxp", buildMaxp(metrics, ordered.size()));
+        tables.put("name", buildName());
+        tables.put("post", buildPost());
+        return SfntWriter.write(tables);
+    }
+
+    /**
+     * Aggregate values needed by several tables.
+     */
+    private static final class FontMetrics {
+        int xMin, yMin, xMax, yMax;
+        int maxPoints, maxContours;
+        int advanceMax, minLsb = Integer.MAX_VALUE, minRsb = Integer.MAX_VALUE, maxExtent;
+        long advanceSum;
+
+        FontMetrics(List<Glyph> glyphs) {
+            boolean first = true;
+            for (Glyph glyph : glyphs) {
+                advanceMax = Math.max(advanceMax, glyph.advanceWidth);
+                advanceSum += glyph.advanceWidth;
+                if (glyph.isEmpty()) {
+                    continue;
+                }
+                if (first) {
+                    xMin = glyph.xMin;
+                    yMin = glyph.yMin;
+                    xMax = glyph.xMax;
+                    yMax = glyph.yMax;
+                    first = false;
+                }
+                xMin = Math.min(xMin, glyph.xMin);
+                yMin = Math.min(yMin, glyph.yMin);
+                xMax = Math.max(xMax, glyph.xMax);
+                yMax = Math.max(yMax, glyph.yMax);
+                maxPoints = Math.max(maxPoints, glyph.pointCount());
+                maxContours = Math.max(maxContours, glyph.contours.size());
+                minLsb = Math.min(minLsb, glyph.xMin);
+                minRsb = Math.min(minRsb, glyph.advanceWidth - glyph.xMax);
+                maxExtent = Math.max(maxExtent, glyph.xMax);
+            }
+            if (minLsb == Integer.MAX_VALUE) {
+                minLsb = 0;
+                minRsb = 0;
+            }
+        }
+    }
+
+    private ByteBuffer[] buildGlyfAndLoca(List<Glyph> ordered) {
+        ByteArrayOutputStream glyf = new ByteArrayOutputStream();
+        ByteBuffer loca = ByteBuffer.allocate(4 * (ordered.size() + 1));
+        for (Glyph glyph : ordered) {
+            loca.putInt(glyf.size());
+            if (!glyph.isEmpty()) {
+                byte[] data = encodeGlyph(glyph);
+                glyf.write(data, 0, data.length);
+                // Keep every glyph 4-byte aligned
+                while (glyf.size() % 4 != 0) {
+                    glyf.write(0);
+                }
+            }
+        }
+        loca.putInt(glyf.size());
+        return new ByteBuffer[] {ByteBuffer.wrap(glyf.toByteArray()), loca};
+    }
+
+    private byte[] encodeGlyph(Glyph glyph) {
+        int points = glyph.pointCount();
+        ByteArrayOutputStream flags = new ByteArrayOutputStream(points);
+        ByteArrayOutputStream xData = new ByteArrayOutputStream(points * 2);
+        ByteArrayOutputStream yData = new ByteArrayOutputStream(points * 2);
+
+        int prevX = 0, prevY = 0;
+        for (Contour contour : glyph.contours) {
+            for (int i = 0; i < contour.size; i++) {
+                int dx = contour.xs[i] - prevX;
+                int dy = contour.ys[i] - prevY;
+                prevX = contour.xs[i];
+                prevY = contour.ys[i];
+
+                int flag = contour.onCurve[i] ? 0x01 : 0;
+                flag |= encodeDelta(dx, xData, 0x02, 0x10);
+                flag |= encodeDelta(dy, yData, 0x04, 0x20);
+                flags.write(flag);
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(10 + 2 * glyph.contours.size() + 2
+            + flags.size() + xData.size() + yData.size());
+        out.putShort((short) glyph.contours.size());
+        out.putShort((short) glyph.xMin);
+        out.putShort((short) glyph.yMin);
+        out.putShort((short) glyph.xMax);
+        out.putShort((short) glyph.yMax);
+        int end = -1;
+        for (Contour contour : glyph.contours) {
+            end += contour.size;
+            out.putShort((short) end);
+        }
+        out.putShort((short) 0); // instructionLength
+        out.put(flags.toByteArray());
+        out.put(xData.toByteArray());
+        out.put(yData.toByteArray());
+        return out.array();
+    }
+
+    /**
+     * Writes one coordinate delta using the shortest encoding and returns its flag bits.
+     */
+    private static int encodeDelta(int delta, ByteArrayOutputStream data, int shortFlag, int sameOrPositiveFlag) {
+        if (delta == 0) {
+            return sameOrPositiveFlag;
+        }
+        if (delta > -256 && delta < 256) {
+            data.write(Math.abs(delta));
+            return delta > 0 ? shortFlag | sameOrPositiveFlag : shortFlag;
+        }
+        data.write((delta >> 8) & 0xFF);
+        data.write(delta & 0xFF);
+        return 0;
+    }
+
+    private byte[] buildHead(FontMetrics m) {
+        long now = System.currentTimeMillis() / 1000 + SFNT_EPOCH_OFFSET;
+        ByteBuffer b = ByteBuffer.allocate(54);
+        b.putInt(0x00010000);           // version
+        b.putInt(0x00010000);           // fontRevision
+        b.putInt(0);                    // checkSumAdjustment, patched by SfntWriter
+        b.putInt(0x5F0F3CF5);           // magicNumber
+        b.putShort((short) 0x000B);     // flags: baseline at y=0, lsb at x=0, integer ppem
+        b.putShort((short) UNITS_PER_EM);
+        b.putLong(now);                 // created
+        b.putLong(now);                 // modified
+        b.putShort((short) m.xMin);
+        b.putShort((short) m.yMin);
+        b.putShort((short) m.xMax);
+        b.putShort((short) m.yMax);
+        b.putShort((short) 0);          // macStyle
+        b.putShort((short) 8);          // lowestRecPPEM
+        b.putShort((short) 2);          // fontDirectionHint
+        b.putShort((short) 1);          // indexToLocFormat: long offsets
+        b.putShort((short) 0);          // glyphDataFormat
+        return b.array();
+    }
+
+    private byte[] buildHhea(FontMetrics m, List<Glyph> ordered) {
+        ByteBuffer b = ByteBuffer.allocate(36);
+        b.putInt(0x00010000);
+        b.putShort((short) ASCENT);
+        b.putShort((short) -DESCENT);
+        b.putShort((short) 0);          // lineGap
+        b.putShort((short) m.advanceMax);
+        b.putShort((short) m.minLsb);
+        b.putShort((short) m.minRsb);
+        b.putShort((short) m.maxExtent);
+        b.putShort((short) 1);          // caretSlopeRise
+        b.putShort((short) 0);          // caretSlopeRun
+        b.putShort((short) 0);          // caretOffset
+        b.putLong(0);                   // reserved
+        b.putShort((short) 0);          // metricDataFormat
+        b.putShort((short) ordered.size());
+        return b.array();
+    }
+
+    private byte[] buildHmtx(List<Glyph> ordered) {
+        ByteBuffer b = ByteBuffer.allocate(4 * ordered.size());
+        for (Glyph glyph : ordered) {
+            b.putShort((short) glyph.advanceWidth);
+            b.putShort((short) (glyph.isEmpty() ? 0 : glyph.xMin));
+        }
+        return b.array();
+    }
+
+    private byte[] buildMaxp(FontMetrics m, int numGlyphs) {
+        ByteBuffer b = ByteBuffer.allocate(32);
+        b.putInt(0x00010000);
+        b.putShort((short) numGlyphs);
+        b.putShort((short) m.maxPoints);
+        b.putShort((short) m.maxContours);
+        b.putShort((short) 0);          // maxCompositePoints
+        b.putShort((short) 0);          // maxCompositeContours
+        b.putShort((short) 2);          // maxZones
+        // maxTwilightPoints .. maxComponentDepth: no hinting, no composites
+        return b.array();
+    }
+
+    private byte[] buildOs2(FontMetrics m) {
+        int first = glyphs.isEmpty() ? 0 : glyphs.firstKey();
+        int last = glyphs.isEmpty() ? 0 : glyphs.lastKey();
+        int avgWidth = (int) (m.advanceSum / (glyphs.size() + 1));
+
+        ByteBuffer b = ByteBuffer.allocate(96);
+        b.putShort((short) 4);          // version
+        b.putShort((short) avgWidth);   // xAvgCharWidth
+        b.putShort((short) 400);        // usWeightClass: regular
+        b.putShort((short) 5);          // usWidthClass: medium
+        b.putShort((short) 0);          // fsType: installable
+        b.putShort((short) 650);        // ySubscriptXSize
+        b.putShort((short) 600);        // ySubscriptYSize
+        b.putShort((short) 0);          // ySubscriptXOffset
+        b.putShort((short) 75);         // ySubscriptYOffset
+        b.putShort((short) 650);        // ySuperscriptXSize
+        b.putShort((short) 600);        // ySuperscriptYSize
+        b.putShort((short) 0);          // ySuperscriptXOffset
+        b.putShort((short) 350);        // ySuperscriptYOffset
+        b.putShort((short) 50);         // yStrikeoutSize
+        b.putShort((short) 250);        // yStrikeoutPosition
+        b.putShort((short) 0);          // sFamilyClass
+        b.put(new byte[10]);            // panose
+        b.putInt(1);                    // ulUnicodeRange1: Basic Latin
+        b.putInt(0);
+        b.putInt(0);
+        b.putInt(0);
+        b.put("TTHW".getBytes(StandardCharsets.US_ASCII)); // achVendID
+        b.putShort((short) 0x0040);     // fsSelection: REGULAR
+        b.putShort((short) first);
+        b.putShort((short) last);
+        b.putShort((short) ASCENT);     // sTypoAscender
+        b.putShort((short) -DESCENT);   // sTypoDescender
+        b.putShort((short) 0);          // sTypoLineGap
+        b.putShort((short) Math.max(ASCENT, m.yMax));   // usWinAscent
+        b.putShort((short) Math.max(DESCENT, -m.yMin)); // usWinDescent
+        b.putInt(1);                    // ulCodePageRange1: Latin 1
+        b.putInt(0);
+        b.putShort((short) (ASCENT / 2)); // sxHeight
+        b.putShort((short) ASCENT);     // sCapHeight
+        b.putShort((short) 0);          // usDefaultChar
+        b.putShort((short) 32);         // usBreakChar
+        b.putShort((short) 0);          // usMaxContext
+        return b.array();
+    }
+
+    /**
+     * Builds a cmap with one format 4 subtable, shared by the Unicode and Windows BMP encodings.
+     * Runs of consecutive code points map to consecutive glyph ids, so each run is one segment.
+     */
+    private byte[] buildCmap() {
+        List<int[]> segments = new ArrayList<>();
+        int glyphId = 1;
+        int[] current = null;
+        for (int codepoint : glyphs.keySet()) {
+            if (current != null && codepoint == current[1] + 1) {
+                current[1] = codepoint;
+            } else {
+                current = new int[] {codepoint, codepoint, glyphId - codepoint};
+                segments.add(current);
+            }
+            glyphId++;
+        }
+        segments.add(new int[] {0xFFFF, 0xFFFF, 1});
+
+        int segCount = segments.size();
+        int searchRange = 2 * Integer.highestOneBit(segCount);
+        int entrySelector = Integer.numberOfTrailingZeros(Integer.highestOneBit(segCount));
+        int subtableLength = 16 + 8 * segCount;
+
+        ByteBuffer b = ByteBuffer.allocate(4 + 8 * 2 + subtableLength);
+        b.putShort((short) 0);          // version
+        b.putShort((short) 2);          // numTables
+        b.putShort((short) 0).putShort((short) 3).putInt(20);  // Unicode BMP
+        b.putShort((short) 3).putShort((short) 1).putInt(20);  // Windows Unicode BMP
+        b.putShort((short) 4);          // format
+        b.putShort((short) subtableLength);
+        b.putShort((short) 0);          // language
+        b.putShort((short) (segCount * 2));
+        b.putShort((short) searchRange);
+        b.putShort((short) entrySelector);
+        b.putShort((short) (segCount * 2 - searchRange));
+        for (int[] segment : segments) {
+            b.putShort((short) segment[1]);
+        }
+        b.putShort((short) 0);          // reservedPad
+        for (int[] segment : segments) {
+            b.putShort((short) segment[0]);
+        }
+        for (int[] segment : segments) {
+            b.putShort((short) segment[2]);
+        }
+        for (int i = 0; i < segCount; i++) {
+            b.putShort((short) 0);      // idRangeOffset
+        }
+        return b.array();
+    }
+
+    private byte[] buildName() {
+        Map<Integer, String> names = new TreeMap<>();
+        names.put(1, familyName);
+        names.put(2, "Regular");
+        names.put(3, familyName + " Regular");
+        names.put(4, familyName + " Regular");
+        names.put(5, "Version 1.0");
+        names.put(6, familyName.replaceAll("[^A-Za-z0-9-]", "") + "-Regular");
+
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        ByteBuffer b = ByteBuffer.allocate(6 + 12 * names.size());
+        b.putShort((short) 0);          // format
+        b.putShort((short) names.size());
+        b.putShort((short) (6 + 12 * names.size()));
+        for (Map.Entry<Integer, String> name : names.entrySet()) {
+            byte[] value = name.getValue().getBytes(StandardCharsets.UTF_16BE);
+            b.putShort((short) 3);      // platform: Windows
+            b.putShort((short) 1);      // encoding: Unicode BMP
+            b.putShort((short) 0x0409); // language: en-US
+            b.putShort((short) name.getKey().intValue());
+            b.putShort((short) value.length);
+            b.putShort((short) strings.size());
+            strings.write(value, 0, value.length);
+        }
+
+        byte[] header = b.array();
+        byte[] table = new byte[header.length + strings.size()];
+        System.arraycopy(header, 0, table, 0, header.length);
+        System.arraycopy(strings.toByteArray(), 0, table, header.length, strings.size());
+        return table;
+    }
+
+    private byte[] buildPost() {
+        ByteBuffer b = ByteBuffer.allocate(32);
+        b.putInt(0x00030000);           // version 3: no glyph names
+        b.putInt(0);                    // italicAngle
+        b.putShort((short) -100);       // underlinePosition
+        b.putShort((short) 50);         // underlineThickness
+        b.putInt(0);                    // isFixedPitch
+        // min/max memory fields left at 0
+        return b.array();
+    }
+}
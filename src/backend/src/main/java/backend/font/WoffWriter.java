@@ -0,0 +1,118 @@
+package backend.font;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * Converts an sfnt (TrueType) file to WOFF 1.0: the same tables, each compressed with zlib,
+ * behind a WOFF header and table directory. Browsers and mobile font loaders decompress it
+ * back to the identical sfnt.
+ *
+ * A table is stored uncompressed when zlib does not make it smaller, as the format requires.
+ * Fonts are converted once and then served from disk, so the best compression level is used.
+ */
+public final class WoffWriter {
+
+    private static final int WOFF_SIGNATURE = 0x774F4646;
+    private static final int HEADER_LENGTH = 44;
+    private static final int SFNT_HEADER_LENGTH = 12;
+    private static final int SFNT_ENTRY_LENGTH = 16;
+    private static final int WOFF_ENTRY_LENGTH = 20;
+
+    private WoffWriter() {
+    }
+
+    /**
+     * @param sfnt A complete TrueType font file
+     * @return The font as a WOFF file
+     * @throws IOException If the font's table directory is malformed
+     */
+    public static byte[] write(byte[] sfnt) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(sfnt);
+        if (sfnt.length < SFNT_HEADER_LENGTH) {
+            throw new IOException("Not an sfnt file: " + sfnt.length + " bytes");
+        }
+        int flavor = in.getInt(0);
+        int numTables = in.getShort(4) & 0xFFFF;
+        if (sfnt.length < SFNT_HEADER_LENGTH + numTables * SFNT_ENTRY_LENGTH) {
+            throw new IOException("Truncated sfnt table directory");
+        }
+
+        // The sfnt directory is already sorted by tag, which WOFF requires as well
+        int[] tags = new int[numTables];
+        int[] checksums = new int[numTables];
+        int[] lengths = new int[numTables];
+        byte[][] data = new byte[numTables][];
+        int totalSfntSize = SFNT_HEADER_LENGTH + numTables * SFNT_ENTRY_LENGTH;
+        int woffLength = HEADER_LENGTH + numTables * WOFF_ENTRY_LENGTH;
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (int i = 0; i < numTables; i++) {
+                int entry = SFNT_HEADER_LENGTH + i * SFNT_ENTRY_LENGTH;
+                tags[i] = in.getInt(entry);
+                checksums[i] = in.getInt(entry + 4);
+                int offset = in.getInt(entry + 8);
+                lengths[i] = in.getInt(entry + 12);
+                if (offset < 0 || lengths[i] < 0 || offset > sfnt.length - lengths[i]) {
+                    throw new IOException("sfnt table " + i + " lies outside the file");
+                }
+                data[i] = compress(deflater, sfnt, offset, lengths[i]);
+                totalSfntSize += SfntWriter.padded(lengths[i]);
+                woffLength += SfntWriter.padded(data[i].length);
+            }
+        } finally {
+            deflater.end();
+        }
+        // The last table is not padded
+        if (numTables > 0) {
+            woffLength -= SfntWriter.padded(data[numTables - 1].length) - data[numTables - 1].length;
+        }
+
+        ByteBuffer woff = ByteBuffer.allocate(woffLength);
+        woff.putInt(WOFF_SIGNATURE);
+        woff.putInt(flavor);
+        woff.putInt(woffLength);
+        woff.putShort((short) numTables);
+        woff.putShort((short) 0);
+        woff.putInt(totalSfntSize);
+        // WOFF version 1.0; no metadata or private data blocks
+        woff.putShort((short) 1);
+        woff.putShort((short) 0);
+        woff.putInt(0);
+        woff.putInt(0);
+        woff.putInt(0);
+        woff.putInt(0);
+        woff.putInt(0);
+
+        int offset = HEADER_LENGTH + numTables * WOFF_ENTRY_LENGTH;
+        for (int i = 0; i < numTables; i++) {
+            woff.putInt(tags[i]);
+            woff.putInt(offset);
+            woff.putInt(data[i].length);
+            woff.putInt(lengths[i]);
+            woff.putInt(checksums[i]);
+            woff.put(offset, data[i]);
+            offset += SfntWriter.padded(data[i].length);
+        }
+        return woff.array();
+    }
+
+    /**
+     * @return The zlib-compressed table, or the table itself if compressing does not save space
+     */
+    private static byte[] compress(Deflater deflater, byte[] sfnt, int offset, int length) {
+        byte[] table = new byte[length];
+        System.arraycopy(sfnt, offset, table, 0, length);
+        deflater.reset();
+        deflater.setInput(table);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.size() < length ? out.toByteArray() : table;
+    }
+}
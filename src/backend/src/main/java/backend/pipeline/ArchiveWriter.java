@@ -0,0 +1,265 @@
+package backend.pipeline;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the reference artifacts of finished jobs (glyph images, outlines) in the background,
+ * one pack file per job, so that archive I/O is not part of the response time.
+ *
+ * A pack is a ZIP file written by a single writer thread in one sequential pass: already
+ * compressed data (PNG glyph images) is stored as is, text (SVG outlines) is deflated and is
+ * only generated on the writer thread. The pack is written under a temporary name and renamed
+ * into place when complete, so a pack that exists is always whole.
+ *
+ * Packs wait in a queue of {@code storage.archive-queue-capacity} entries. When the queue is
+ * full the pack is written on the submitting thread instead, which slows that job down but
+ * never loses its archive; a capacity of 0 disables archiving.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+public class ArchiveWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveWriter.class);
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong inline = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    /**
+     * @param queueCapacity Number of packs allowed to wait for the writer thread; 0 disables
+     *        archiving
+     */
+    public ArchiveWriter(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            this.executor = null;
+            return;
+        }
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "archive-writer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            this::writeInline);
+    }
+
+    /**
+     * @return true if packs are being written
+     */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Queues a pack for writing.
+     *
+     * @param pack The pack to write
+     */
+    public void submit(Pack pack) {
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> write(pack));
+        } catch (RejectedExecutionException e) {
+            // Shut down: nothing is written any more
+            logger.warn("Archive writer is shut down; dropping pack {}", pack.target.getName());
+        }
+    }
+
+    private void writeInline(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Archive writer is shut down");
+        }
+        inline.incrementAndGet();
+        task.run();
+    }
+
+    private void write(Pack pack) {
+        long start = System.nanoTime();
+        File temp = new File(pack.target.getParentFile(), pack.target.getName() + ".tmp");
+        try {
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp.toPath()), BUFFER_SIZE);
+                ZipOutputStream zip = new ZipOutputStream(file)) {
+                zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+                for (Pack.Entry entry : pack.entries) {
+                    byte[] data = entry.content.get();
+                    ZipEntry zipEntry = new ZipEntry(entry.name);
+                    if (!entry.compress) {
+                        CRC32 crc = new CRC32();
+                        crc.update(data);
+                        zipEntry.setMethod(ZipEntry.STORED);
+                        zipEntry.setSize(data.length);
+                        zipEntry.setCompressedSize(data.length);
+                        zipEntry.setCrc(crc.getValue());
+                    }
+                    zip.putNextEntry(zipEntry);
+                    zip.write(data);
+                    zip.closeEntry();
+                }
+            }
+            Files.move(temp.toPath(), pack.target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written.incrementAndGet();
+            writtenBytes.addAndGet(pack.target.length());
+            writeNanos.addAndGet(System.nanoTime() - start);
+            if (pack.whenWritten != null) {
+                pack.whenWritten.run();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The job itself has already succeeded; only its reference copy is missing
+            failed.incrementAndGet();
+            temp.delete();
+            logger.warn("Failed to write archive pack {}: {}", pack.target.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return Number of packs waiting for the writer thread
+     */
+    public int getQueuedCount() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * @return Number of packs written since startup
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * @return Total size of the packs written since startup
+     */
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * @return Time spent writing the packs written since startup
+     */
+    public long getWriteNanos() {
+        return writeNanos.get();
+    }
+
+    /**
+     * @return Number of packs that could not be written since startup
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return Number of packs written on the submitting thread because the queue was full
+     */
+    public long getInlineCount() {
+        return inline.get();
+    }
+
+    /**
+     * Writes the packs still queued, then stops the writer thread.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Archive writer did not finish within {}s; {} packs not written",
+                SHUTDOWN_TIMEOUT_SECONDS, executor.shutdownNow().size());
+        }
+    }
+
+    /**
+     * The artifacts of one job, written as one ZIP file.
+     */
+    public static final class Pack {
+        private final File target;
+        private final List<Entry> entries = new ArrayList<>();
+        private Runnable whenWritten;
+
+        /**
+         * @param target The pack file to create
+         */
+        public Pack(File target) {
+            this.target = target;
+        }
+
+        /**
+         * Adds data that is already compressed; it is stored without deflating it again.
+         *
+         * @param name Entry name inside the pack
+         * @param data Entry contents
+         * @return This pack
+         */
+        public Pack store(String name, byte[] data) {
+            entries.add(new Entry(name, () -> data, false));
+            return this;
+        }
+
+        /**
+         * Adds data that is generated and deflated on the writer thread.
+         *
+         * @param name Entry name inside the pack
+         * @param content Produces the entry contents
+         * @return This pack
+         */
+        public Pack deflate(String name, Supplier<byte[]> content) {
+            entries.add(new Entry(name, content, true));
+            return this;
+        }
+
+        /**
+         * @param callback Runs on the writer thread once the pack file is in place
+         * @return This pack
+         */
+        public Pack whenWritten(Runnable callback) {
+            this.whenWritten = callback;
+            return this;
+        }
+
+        public File getTarget() {
+            return target;
+        }
+
+        private static final class Entry {
+            private final String name;
+            private final Supplier<byte[]> content;
+            private final boolean compress;
+
+            private Entry(String name, Supplier<byte[]> content, boolean compress) {
+                this.name = name;
+                this.content = content;
+                this.compress = compress;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package backend.pipeline;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor that runs whole font jobs, one thread per concurrently processed job.
+ *
+ * The pool has a fixed size of {@code processing.max-concurrent-jobs} threads in front of a
+ * queue of {@code processing.job-queue-capacity} waiting jobs. When both are full, submissions
+ * are aborted with a {@link RejectedExecutionException} (surfaced by Spring as a
+ * {@link org.springframework.core.task.TaskRejectedException}) rather than run on the caller's
+ * thread, so a load spike is turned away instead of tying up request threads.
+ *
+ * Per-glyph work of the running jobs happens on the {@link GlyphStageExecutor}; this pool only
+ * bounds how many jobs are in flight at once.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+public class FontJobExecutor extends ThreadPoolTaskExecutor {
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param concurrentJobs Number of jobs processed at once
+     * @param queueCapacity Number of jobs allowed to wait for a processing thread
+     */
+    public FontJobExecutor(int concurrentJobs, int queueCapacity) {
+        setCorePoolSize(concurrentJobs);
+        setMaxPoolSize(concurrentJobs);
+        setQueueCapacity(queueCapacity);
+        setThreadNamePrefix("font-job-");
+        setRejectedExecutionHandler(this::reject);
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor executor) {
+        rejectedCount.incrementAndGet();
+        throw new RejectedExecutionException("Font job queue is full (" + executor.getQueue().size() + " jobs waiting)");
+    }
+
+    /**
+     * @return Number of jobs waiting for a processing thread
+     */
+    public int getQueuedCount() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    /**
+     * @return Number of jobs turned away because the queue was full, since startup
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,174 @@
+package backend.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of finished fonts, keyed by the digest of the uploaded ZIP plus the pipeline settings.
+ *
+ * Identical uploads (client retries, double submits) are answered with the font built the
+ * first time instead of running the whole pipeline again. Fonts are stored as
+ * {@code <key>.ttf} files in one directory, which is bounded by:
+ * - total size: the oldest fonts are deleted first
+ * - age: fonts built longer ago than the maximum age are never served and get deleted
+ *
+ * The cache is thread-safe.
+ */
+public class FontResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontResultCache.class);
+    private static final String FONT_SUFFIX = ".ttf";
+
+    private final File directory;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param directory Directory holding the cached fonts, or null to disable the cache
+     * @param maxBytes Maximum total size of the cached fonts; 0 disables the cache
+     * @param maxAgeMillis Maximum age of a cached font
+     */
+    public FontResultCache(File directory, long maxBytes, long maxAgeMillis) {
+        this.directory = directory != null && maxBytes > 0 ? directory : null;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        if (this.directory != null) {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                logger.warn("Failed to create font cache directory: {}", this.directory.getAbsolutePath());
+            }
+            evict();
+        }
+        logger.info("Font result cache directory: {}", this.directory);
+    }
+
+    /**
+     * Computes the cache key of an upload.
+     *
+     * @param uploadDigest SHA-256 of the uploaded ZIP bytes
+     * @param pipelineSettings Identifies every pipeline setting that affects the built font
+     * @return Hex-encoded SHA-256 digest
+     */
+    public static String keyOf(byte[] uploadDigest, String pipelineSettings) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(uploadDigest);
+            sha256.update(pipelineSettings.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return true if fonts are being cached
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Looks up a finished font.
+     *
+     * @param key Key from {@link #keyOf(byte[], String)}
+     * @return The cached font file, or null on a miss
+     */
+    public File get(String key) {
+        if (directory == null) {
+            return null;
+        }
+        File font = new File(directory, key + FONT_SUFFIX);
+        long now = System.currentTimeMillis();
+        if (font.isFile() && now - font.lastModified() <= maxAgeMillis) {
+            hits.incrementAndGet();
+            return font;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a finished font, then evicts expired and oldest fonts as needed.
+     *
+     * @param key Key from {@link #keyOf(byte[], String)}
+     * @param ttf The font to add to the cache; hard-linked where possible, otherwise copied
+     */
+    public void put(String key, File ttf) {
+        if (directory == null) {
+            return;
+        }
+        File target = new File(directory, key + FONT_SUFFIX);
+        try {
+            File temp = File.createTempFile(key, ".tmp", directory);
+            Files.delete(temp.toPath());
+            JobWorkspace.linkOrCopy(ttf.toPath(), temp.toPath());
+            Files.move(temp.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to cache font {}: {}", key, e.getMessage());
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Deletes expired fonts, then the oldest remaining fonts until the total size fits.
+     */
+    private synchronized void evict() {
+        File[] fonts = directory.listFiles((dir, name) -> name.endsWith(FONT_SUFFIX));
+        if (fonts == null) {
+            return;
+        }
+        Arrays.sort(fonts, Comparator.comparingLong(File::lastModified));
+        long now = System.currentTimeMillis();
+        long total = 0;
+        for (File font : fonts) {
+            total += font.length();
+        }
+        for (File font : fonts) {
+            boolean expired = now - font.lastModified() > maxAgeMillis;
+            if (!expired && total <= maxBytes) {
+                continue;
+            }
+            long length = font.length();
+            if (font.delete()) {
+                total -= length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return Uploads answered with a cached font
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Uploads that had to be processed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Fonts deleted for age or size
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
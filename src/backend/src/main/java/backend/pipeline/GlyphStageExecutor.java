@@ -0,0 +1,162 @@
+package backend.pipeline;
+
+import backend.config.ProcessingConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded parallel stage for per-glyph work (decode, trim, vectorize).
+ *
+ * All font jobs share one fixed-size worker pool, so the number of glyphs being processed
+ * at once never exceeds the global core budget ({@code processing.glyph-threads}). Each job is
+ * additionally limited to {@code processing.glyph-parallelism-per-job} in-flight glyphs, which
+ * keeps a single large upload from starving the other running jobs.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+@Component
+public class GlyphStageExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlyphStageExecutor.class);
+
+    @Autowired
+    private ProcessingConfiguration config;
+
+    private ExecutorService workers;
+
+    /**
+     * Creates the shared glyph worker pool once the configuration has been resolved.
+     */
+    @PostConstruct
+    public void initialize() {
+        int threads = config.getProcessingGlyphThreads();
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(
+            threads, threads,
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "glyph-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        logger.info("Glyph stage started with {} workers ({} per job)",
+            threads, config.getProcessingGlyphParallelismPerJob());
+    }
+
+    /**
+     * Starts a batch of tasks for one job whose tasks are not all known up front, such as
+     * glyphs decoded while the upload is still being read.
+     *
+     * @return An empty batch bound to the shared pool and the per-job parallelism limit
+     */
+    public <T> Batch<T> newBatch() {
+        return new Batch<>(new Semaphore(config.getProcessingGlyphParallelismPerJob()));
+    }
+
+    /**
+     * Tasks of a single job, submitted one at a time and collected with {@link #join()}.
+     * Not thread-safe: a batch is fed and joined by the job's own thread.
+     */
+    public final class Batch<T> {
+        private final Semaphore jobPermits;
+        private final List<Future<T>> futures = new ArrayList<>();
+        private volatile Exception failure;
+
+        private Batch(Semaphore jobPermits) {
+            this.jobPermits = jobPermits;
+        }
+
+        /**
+         * Submits one task, blocking while the job already has its per-job share of workers
+         * busy. This also bounds how much input the caller can buffer ahead of the workers.
+         * Once a task of the batch has failed, further submissions fail fast with that
+         * failure instead of queueing work whose result would be discarded.
+         *
+         * @param task The per-glyph task
+         * @throws InterruptedException If interrupted while waiting for a free slot
+         * @throws Exception The exception raised by an earlier task of this batch
+         */
+        public void submit(Callable<T> task) throws Exception {
+            jobPermits.acquire();
+            if (failure != null) {
+                jobPermits.release();
+                throw failure;
+            }
+            try {
+                futures.add(workers.submit(() -> {
+                    try {
+                        return task.call();
+                    } catch (Exception e) {
+                        failure = e;
+                        throw e;
+                    } finally {
+                        jobPermits.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                jobPermits.release();
+                throw e;
+            }
+        }
+
+        /**
+         * Waits for every submitted task. If any task fails, the remaining tasks are cancelled
+         * and the first failure is rethrown.
+         *
+         * @return The task results, in submission order
+         * @throws Exception The first exception raised by a task
+         */
+        public List<T> join() throws Exception {
+            List<T> results = new ArrayList<>(futures.size());
+            try {
+                for (Future<T> future : futures) {
+                    results.add(future.get());
+                }
+                return results;
+            } catch (ExecutionException e) {
+                cancel();
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            } catch (Exception e) {
+                cancel();
+                throw e;
+            }
+        }
+
+        /**
+         * Cancels every submitted task that has not finished yet.
+         */
+        public void cancel() {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Stops the worker pool when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,153 @@
+package backend.pipeline;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live progress of one font job, updated by the pipeline and read by status requests.
+ *
+ * Stages follow each other in declaration order; {@link Stage#INGEST} already overlaps with
+ * tracing, since glyphs are handed to the glyph stage while the upload is still being read.
+ * The object is thread-safe: glyph workers report traced glyphs concurrently.
+ */
+public class JobProgress {
+
+    /**
+     * Pipeline stages of a font job.
+     */
+    public enum Stage {
+        /** Waiting for a processing thread */
+        QUEUED,
+        /** Reading the upload and decoding glyph images */
+        INGEST,
+        /** Waiting for the remaining glyphs to be traced */
+        VECTORIZE,
+        /** Building the font file */
+        ASSEMBLE,
+        /** Storing the results */
+        STORE,
+        /** Finished, successfully or not */
+        DONE
+    }
+
+    private final Map<Stage, Long> stageStartMillis = new EnumMap<>(Stage.class);
+    private final AtomicInteger glyphsRead = new AtomicInteger();
+    private final AtomicInteger glyphsTraced = new AtomicInteger();
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile String error;
+    private volatile boolean timedOut;
+
+    public JobProgress() {
+        stageStartMillis.put(Stage.QUEUED, System.currentTimeMillis());
+    }
+
+    /**
+     * Moves the job to a later stage.
+     *
+     * @param next The stage the job is entering
+     */
+    public void enterStage(Stage next) {
+        synchronized (stageStartMillis) {
+            stageStartMillis.put(next, System.currentTimeMillis());
+            stage = next;
+        }
+    }
+
+    /**
+     * Records why the job failed and moves it to {@link Stage#DONE}. The first recorded failure
+     * wins, so a timeout is not masked by the interruption it causes.
+     *
+     * @param message Description of the failure
+     */
+    public void fail(String message) {
+        synchronized (stageStartMillis) {
+            if (error == null) {
+                error = message;
+            }
+        }
+        enterStage(Stage.DONE);
+    }
+
+    /**
+     * Marks the job as timed out. The job stays in its current stage until the pipeline has
+     * unwound and calls {@link #fail(String)}. Has no effect once the job is done.
+     *
+     * @param message Description of the deadline that passed
+     */
+    public void timeOut(String message) {
+        synchronized (stageStartMillis) {
+            if (error == null && stage != Stage.DONE) {
+                error = message;
+                timedOut = true;
+            }
+        }
+    }
+
+    /**
+     * @return true if the job failed because a deadline passed
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public void glyphRead() {
+        glyphsRead.incrementAndGet();
+    }
+
+    public void glyphTraced() {
+        glyphsTraced.incrementAndGet();
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * @param stage A stage that has been entered
+     * @return When the stage was entered, or 0 if it has not been entered
+     */
+    public long getStageStartMillis(Stage stage) {
+        synchronized (stageStartMillis) {
+            return stageStartMillis.getOrDefault(stage, 0L);
+        }
+    }
+
+    /**
+     * @return The failure message, or null if the job has not failed
+     */
+    public String getError() {
+        return error;
+    }
+
+    public int getGlyphsRead() {
+        return glyphsRead.get();
+    }
+
+    public int getGlyphsTraced() {
+        return glyphsTraced.get();
+    }
+
+    /**
+     * @return Time spent in each stage that has been entered so far, in milliseconds; the
+     *         current stage counts up to now
+     */
+    public Map<Stage, Long> getStageMillis() {
+        Map<Stage, Long> durations = new EnumMap<>(Stage.class);
+        synchronized (stageStartMillis) {
+            Long previousStart = null;
+            Stage previous = null;
+            for (Map.Entry<Stage, Long> entry : stageStartMillis.entrySet()) {
+                if (previous != null) {
+                    durations.put(previous, entry.getValue() - previousStart);
+                }
+                previous = entry.getKey();
+                previousStart = entry.getValue();
+            }
+            if (previous != null && previous != Stage.DONE) {
+                durations.put(previous, System.currentTimeMillis() - previousStart);
+            }
+        }
+        return durations;
+    }
+}
@@ -0,0 +1,181 @@
+package backend.pipeline;
+
+import backend.config.ProcessingConfiguration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Enforces the per-job and per-stage deadlines of running font jobs.
+ *
+ * A job is watched from the moment its processing thread picks it up. Once a second the
+ * watchdog compares every watched job against two limits:
+ * - {@code processing.stage-timeout-seconds} for the stage it is currently in
+ * - {@code processing.timeout-seconds} for the job as a whole
+ * A stage that has used half of its budget is reported once as slow. A job that passes either
+ * limit is marked as timed out and its processing thread is interrupted, which cancels its
+ * glyph tasks and kills any external process it is waiting for, so the executor thread is
+ * released instead of being pinned by one bad upload.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+@Component
+public class JobWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobWatchdog.class);
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    @Autowired
+    private ProcessingConfiguration config;
+
+    private final Map<Watch, Boolean> watched = new ConcurrentHashMap<>();
+    private final AtomicLong slowStages = new AtomicLong();
+    private final AtomicLong timedOutJobs = new AtomicLong();
+    private ScheduledExecutorService timer;
+
+    /**
+     * Starts the periodic deadline check.
+     */
+    @PostConstruct
+    public void initialize() {
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        logger.info("Job watchdog started (job limit {}s, stage limit {}s)",
+            config.getProcessingTimeoutSeconds(), config.getProcessingStageTimeoutSeconds());
+    }
+
+    /**
+     * Starts watching the job processed by the calling thread.
+     *
+     * @param progress The job's progress
+     * @return The watch; close it on the same thread when the job has finished
+     */
+    public Watch watch(JobProgress progress) {
+        Watch watch = new Watch(progress, Thread.currentThread());
+        watched.put(watch, Boolean.TRUE);
+        return watch;
+    }
+
+    /**
+     * Marks a job as timed out and counts it, unless it has already failed or finished.
+     *
+     * @param progress The job's progress
+     * @param message Description of the deadline that passed
+     * @return true if the job was marked as timed out by this call
+     */
+    public boolean timeOut(JobProgress progress, String message) {
+        if (progress.isTimedOut()) {
+            return false;
+        }
+        progress.timeOut(message);
+        if (!progress.isTimedOut()) {
+            return false;
+        }
+        timedOutJobs.incrementAndGet();
+        logger.warn(message);
+        return true;
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        long jobLimit = TimeUnit.SECONDS.toMillis(config.getProcessingTimeoutSeconds());
+        long stageLimit = TimeUnit.SECONDS.toMillis(config.getProcessingStageTimeoutSeconds());
+        for (Watch watch : watched.keySet()) {
+            try {
+                JobProgress.Stage stage = watch.progress.getStage();
+                if (stage == JobProgress.Stage.DONE) {
+                    continue;
+                }
+                long jobMillis = now - watch.startMillis;
+                long stageMillis = now - watch.progress.getStageStartMillis(stage);
+                if (stageMillis > stageLimit) {
+                    watch.expire("Font job timed out: stage " + stage + " exceeded its limit of "
+                        + config.getProcessingStageTimeoutSeconds() + "s");
+                } else if (jobMillis > jobLimit) {
+                    watch.expire("Font job timed out in stage " + stage + ": job exceeded its limit of "
+                        + config.getProcessingTimeoutSeconds() + "s");
+                } else if (stageMillis > stageLimit / 2 && watch.reportedStage != stage) {
+                    watch.reportedStage = stage;
+                    slowStages.incrementAndGet();
+                    logger.warn("Font job on {} has been in stage {} for {} ms (limit {}s)",
+                        watch.thread.getName(), stage, stageMillis, config.getProcessingStageTimeoutSeconds());
+                }
+            } catch (RuntimeException e) {
+                // Keep the watchdog alive for the other jobs
+                logger.error("Job watchdog check failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return Number of stages reported as slow since startup
+     */
+    public long getSlowStages() {
+        return slowStages.get();
+    }
+
+    /**
+     * @return Number of jobs that were stopped at a deadline since startup
+     */
+    public long getTimedOutJobs() {
+        return timedOutJobs.get();
+    }
+
+    /**
+     * Stops the deadline check when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * A running job being watched.
+     */
+    public final class Watch implements AutoCloseable {
+        private final JobProgress progress;
+        private final Thread thread;
+        private final long startMillis = System.currentTimeMillis();
+        private volatile JobProgress.Stage reportedStage;
+        private boolean closed;
+
+        private Watch(JobProgress progress, Thread thread) {
+            this.progress = progress;
+            this.thread = thread;
+        }
+
+        private synchronized void expire(String message) {
+            if (!closed && timeOut(progress, message)) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Stops watching the job. Clears an interrupt the watchdog may have raised, so that it
+         * does not leak into the next job on the same pooled thread.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            watched.remove(this);
+            Thread.interrupted();
+        }
+    }
+}
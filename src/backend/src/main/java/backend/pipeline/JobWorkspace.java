@@ -0,0 +1,200 @@
+package backend.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Directories owned by a single font job, so that concurrent jobs never write to the same
+ * file names.
+ *
+ * - the work directory holds scratch files of the pipeline (Potrace files, FontForge input). It
+ *   lives in the temp directory and is deleted as soon as the job is done
+ * - the staging directory collects the artifacts that are kept: the uploaded ZIP, the glyph
+ *   outlines and the font. It lives next to the result directory, on the storage volume
+ * - the result directory {@code <storage>/jobs/<shard>/<job id>} (see {@link StorageManager})
+ *   appears only when the job publishes: the staging directory is renamed to it in one atomic
+ *   step, so readers see either the complete set of artifacts or nothing
+ *
+ * Artifacts produced in the work directory are moved into staging rather than copied; the move
+ * is a rename whenever both directories are on the same file system.
+ *
+ * Workspaces are created and cleaned up by the {@link WorkspaceManager}.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+public final class JobWorkspace {
+
+    /** Directory of the per-job result directories, inside the storage directory. */
+    public static final String JOBS_DIRECTORY = "jobs";
+    /** Name prefix of work directories in the temp directory. */
+    static final String WORK_PREFIX = "job-";
+    /** Name prefix of staging directories in the jobs directory. */
+    static final String STAGING_PREFIX = ".staging-";
+
+    private final String jobId;
+    private final File workDir;
+    private final File stagingDir;
+    private final File resultDir;
+
+    private JobWorkspace(String jobId, File workDir, File stagingDir, File resultDir) {
+        this.jobId = jobId;
+        this.workDir = workDir;
+        this.stagingDir = stagingDir;
+        this.resultDir = resultDir;
+    }
+
+    /**
+     * Creates the work and staging directories of a job.
+     *
+     * @param jobId Unique id of the job; names its directories
+     * @param tempDirectory The temp directory holding the work directories
+     * @param jobsDirectory The jobs directory holding the staging directories
+     * @param resultDir The result directory the job publishes to
+     * @return The new workspace
+     * @throws IOException If a directory cannot be created
+     */
+    static JobWorkspace create(String jobId, File tempDirectory, File jobsDirectory, File resultDir)
+            throws IOException {
+        Files.createDirectories(jobsDirectory.toPath());
+        File workDir = new File(tempDirectory, WORK_PREFIX + jobId);
+        Files.createDirectories(workDir.toPath());
+        File stagingDir = new File(jobsDirectory, STAGING_PREFIX + jobId);
+        Files.createDirectory(stagingDir.toPath());
+        return new JobWorkspace(jobId, workDir, stagingDir, resultDir);
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public File getWorkDir() {
+        return workDir;
+    }
+
+    /**
+     * @param name File name of an artifact
+     * @return Where the artifact is written before the job publishes
+     */
+    public File staged(String name) {
+        return new File(stagingDir, name);
+    }
+
+    /**
+     * @param name File name of an artifact
+     * @return Where the artifact is found once the job has published
+     */
+    public File published(String name) {
+        return new File(resultDir, name);
+    }
+
+    /**
+     * Moves a file produced in the work directory into staging.
+     *
+     * @param source The file to move
+     * @param name File name of the artifact
+     * @throws IOException If the file cannot be moved
+     */
+    public void stage(File source, String name) throws IOException {
+        move(source.toPath(), staged(name).toPath());
+    }
+
+    /**
+     * Adds a file that must stay where it is (such as a cached font) to staging, as a hard link
+     * where possible.
+     *
+     * @param source The file to link
+     * @param name File name of the artifact
+     * @throws IOException If the file can be neither linked nor copied
+     */
+    public void link(File source, String name) throws IOException {
+        linkOrCopy(source.toPath(), staged(name).toPath());
+    }
+
+    /**
+     * Atomically turns the staging directory into the job's result directory.
+     *
+     * @return The result directory
+     * @throws IOException If the directory cannot be renamed
+     */
+    public File publish() throws IOException {
+        Files.createDirectories(resultDir.getParentFile().toPath());
+        Files.move(stagingDir.toPath(), resultDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return resultDir;
+    }
+
+    File getStagingDir() {
+        return stagingDir;
+    }
+
+    /**
+     * Deletes everything a failed job has staged or published.
+     */
+    public void discard() {
+        deleteTree(stagingDir.toPath());
+        deleteTree(resultDir.toPath());
+    }
+
+    /**
+     * Deletes the work directory, and the staging directory if the job has not published.
+     */
+    void cleanUp() {
+        deleteTree(workDir.toPath());
+        deleteTree(stagingDir.toPath());
+    }
+
+    /**
+     * Renames a file, or copies and deletes it when source and target are on different file
+     * systems.
+     */
+    static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    /**
+     * Creates a hard link to a file, or copies it when the file system does not support links
+     * between the two locations.
+     *
+     * @param source The existing file
+     * @param target The link to create; must not exist
+     * @throws IOException If the file can be neither linked nor copied
+     */
+    static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            if (e instanceof FileAlreadyExistsException) {
+                throw (FileAlreadyExistsException) e;
+            }
+            Files.copy(source, target);
+        }
+    }
+
+    /**
+     * Deletes a directory and everything below it, ignoring files that are already gone.
+     *
+     * @param root The directory to delete
+     */
+    public static void deleteTree(Path root) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Leftovers are only wasted space; the next job uses a fresh directory
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package backend.pipeline;
+
+import backend.vectorize.OutlineCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters of the font pipeline, published through {@code /actuator/metrics} and
+ * {@code /actuator/prometheus}.
+ *
+ * Timers (all with percentile histograms):
+ * - {@code font.pipeline.step}, tagged {@code step}: the individual pieces of work listed in
+ *   {@link Step}, recorded per job or per glyph
+ * - {@code font.pipeline.stage}, tagged {@code stage}: wall time of each {@link JobProgress.Stage}
+ *   of a finished job
+ * - {@code font.jobs}, tagged {@code outcome}: run time of whole jobs, excluding queue wait
+ *
+ * Gauges and counters:
+ * - {@code font.jobs.active}, {@code font.jobs.queued}, {@code font.jobs.rejected}
+ * - {@code font.jobs.timed.out}, {@code font.jobs.slow.stages}
+ * - {@code font.subprocesses.live}: Potrace and one-shot FontForge processes running right now
+ * - hit/miss counters of the outline, font result and subset caches
+ * - {@code font.archive.queued}, {@code font.archive.packs} (tagged {@code result}),
+ *   {@code font.archive.inline}, {@code font.archive.bytes} and the {@code font.archive.writes}
+ *   timer of the background {@link ArchiveWriter}
+ * - {@code font.temp.bytes}, {@code font.temp.workspaces} and {@code font.temp.orphans.deleted}
+ *   of the {@link WorkspaceManager}
+ * - {@code font.storage.bytes}, {@code font.storage.results} and {@code font.storage.evictions}
+ *   (tagged {@code reason}) of the {@link StorageManager}
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+@Component
+public class PipelineMetrics {
+
+    /**
+     * Pieces of pipeline work that are timed individually.
+     */
+    public enum Step {
+        /** Time blocked reading the upload from the client or the spool file, per job */
+        UPLOAD_RECEIVE,
+        /** Time handing the job's archive pack to the archive writer, per job; includes writing
+         *  the pack when the writer's queue is full */
+        ARCHIVE_COPY,
+        /** Time inflating ZIP entries, excluding the time receiving the upload, per job */
+        EXTRACT,
+        /** Decoding one glyph image and thresholding it to a bitmap */
+        DECODE,
+        /** Tracing one glyph bitmap, including outline cache lookups */
+        VECTORIZE,
+        /** Building the font file (FontForge or the in-process writer), per job */
+        ASSEMBLE,
+        /** Moving the font to the job's result directory and publishing it, per job */
+        RESULT_COPY
+    }
+
+    /**
+     * How a job ended, for the {@code font.jobs} timer.
+     */
+    public enum Outcome {
+        SUCCEEDED, CACHED, FAILED, TIMED_OUT
+    }
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private FontJobExecutor fontJobExecutor;
+
+    @Autowired
+    private JobWatchdog jobWatchdog;
+
+    @Autowired
+    private OutlineCache outlineCache;
+
+    @Autowired
+    private FontResultCache fontResultCache;
+
+    @Autowired
+    private SubsetCache subsetCache;
+
+    @Autowired
+    private ArchiveWriter archiveWriter;
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    @Autowired
+    private StorageManager storageManager;
+
+    private final Map<Step, Timer> stepTimers = new EnumMap<>(Step.class);
+    private final Map<JobProgress.Stage, Timer> stageTimers = new EnumMap<>(JobProgress.Stage.class);
+    private final Map<Outcome, Timer> jobTimers = new EnumMap<>(Outcome.class);
+
+    /**
+     * Registers all meters up front, so every series exists from the first scrape on.
+     */
+    @PostConstruct
+    public void initialize() {
+        for (Step step : Step.values()) {
+            stepTimers.put(step, Timer.builder("font.pipeline.step")
+                .description("Time spent in one piece of pipeline work")
+                .tag("step", tagValue(step))
+                .publishPercentileHistogram()
+                .register(registry));
+        }
+        for (JobProgress.Stage stage : JobProgress.Stage.values()) {
+            if (stage == JobProgress.Stage.DONE) {
+                continue;
+            }
+            stageTimers.put(stage, Timer.builder("font.pipeline.stage")
+                .description("Wall time of one stage of a font job")
+                .tag("stage", tagValue(stage))
+                .publishPercentileHistogram()
+                .register(registry));
+        }
+        for (Outcome outcome : Outcome.values()) {
+            jobTimers.put(outcome, Timer.builder("font.jobs")
+                .description("Run time of font jobs, from the first stage to the result")
+                .tag("outcome", tagValue(outcome))
+                .publishPercentileHistogram()
+                .register(registry));
+        }
+
+        Gauge.builder("font.jobs.active", fontJobExecutor, FontJobExecutor::getActiveCount)
+            .description("Font jobs being processed")
+            .register(registry);
+        Gauge.builder("font.jobs.queued", fontJobExecutor, FontJobExecutor::getQueuedCount)
+            .description("Font jobs waiting for a processing thread")
+            .register(registry);
+        FunctionCounter.builder("font.jobs.rejected", fontJobExecutor, FontJobExecutor::getRejectedCount)
+            .description("Font jobs turned away because the queue was full")
+            .register(registry);
+        FunctionCounter.builder("font.jobs.timed.out", jobWatchdog, JobWatchdog::getTimedOutJobs)
+            .description("Font jobs stopped at a deadline")
+            .register(registry);
+        FunctionCounter.builder("font.jobs.slow.stages", jobWatchdog, JobWatchdog::getSlowStages)
+            .description("Stages that used half of their time budget")
+            .register(registry);
+        Gauge.builder("font.subprocesses.live", ProcessDeadline::getLiveCount)
+            .description("External Potrace and FontForge processes running under a deadline")
+            .register(registry);
+
+        FunctionCounter.builder("font.outline.cache.requests", outlineCache, OutlineCache::getHits)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("font.outline.cache.requests", outlineCache, OutlineCache::getSpillHits)
+            .tag("result", "spill-hit")
+            .register(registry);
+        FunctionCounter.builder("font.outline.cache.requests", outlineCache, OutlineCache::getMisses)
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("font.result.cache.requests", fontResultCache, FontResultCache::getHits)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("font.result.cache.requests", fontResultCache, FontResultCache::getMisses)
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("font.subset.cache.requests", subsetCache, SubsetCache::getHits)
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("font.subset.cache.requests", subsetCache, SubsetCache::getMisses)
+            .tag("result", "miss")
+            .register(registry);
+        Gauge.builder("font.subset.cache.bytes", subsetCache, SubsetCache::getBytes)
+            .description("Size of the font subsets on the heap")
+            .baseUnit("bytes")
+            .register(registry);
+
+        Gauge.builder("font.archive.queued", archiveWriter, ArchiveWriter::getQueuedCount)
+            .description("Archive packs waiting for the archive writer")
+            .register(registry);
+        FunctionCounter.builder("font.archive.packs", archiveWriter, ArchiveWriter::getWrittenCount)
+            .tag("result", "written")
+            .register(registry);
+        FunctionCounter.builder("font.archive.packs", archiveWriter, ArchiveWriter::getFailedCount)
+            .tag("result", "failed")
+            .register(registry);
+        FunctionCounter.builder("font.archive.inline", archiveWriter, ArchiveWriter::getInlineCount)
+            .description("Archive packs written by the job itself because the queue was full")
+            .register(registry);
+        FunctionCounter.builder("font.archive.bytes", archiveWriter, ArchiveWriter::getWrittenBytes)
+            .description("Size of the archive packs written")
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionTimer.builder("font.archive.writes", archiveWriter,
+                ArchiveWriter::getWrittenCount, ArchiveWriter::getWriteNanos, TimeUnit.NANOSECONDS)
+            .description("Time writing archive packs")
+            .register(registry);
+
+        Gauge.builder("font.temp.bytes", workspaceManager, WorkspaceManager::getTempUsageBytes)
+            .description("Disk space used in the temp directory")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("font.temp.workspaces", workspaceManager, WorkspaceManager::getActiveWorkspaces)
+            .description("Job workspaces in use")
+            .register(registry);
+        FunctionCounter.builder("font.temp.orphans.deleted", workspaceManager, WorkspaceManager::getOrphansDeleted)
+            .description("Leftover temp entries deleted by the sweep")
+            .register(registry);
+
+        Gauge.builder("font.storage.bytes", storageManager, StorageManager::getUsedBytes)
+            .description("Disk space used by job results in the storage directory")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("font.storage.results", storageManager, StorageManager::getResultCount)
+            .description("Job results kept in the storage directory")
+            .register(registry);
+        for (StorageManager.Reason reason : StorageManager.Reason.values()) {
+            FunctionCounter.builder("font.storage.evictions", storageManager, manager -> manager.getEvictions(reason))
+                .tag("reason", tagValue(reason))
+                .register(registry);
+        }
+    }
+
+    /**
+     * @param step The piece of work
+     * @param nanos How long it took
+     */
+    public void record(Step step, long nanos) {
+        stepTimers.get(step).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the stage durations and the run time of a finished job.
+     *
+     * @param progress The job's progress, in {@link JobProgress.Stage#DONE}
+     * @param outcome How the job ended
+     */
+    public void recordJob(JobProgress progress, Outcome outcome) {
+        long total = 0;
+        for (Map.Entry<JobProgress.Stage, Long> entry : progress.getStageMillis().entrySet()) {
+            stageTimers.get(entry.getKey()).record(entry.getValue(), TimeUnit.MILLISECONDS);
+            if (entry.getKey() != JobProgress.Stage.QUEUED) {
+                total += entry.getValue();
+            }
+        }
+        jobTimers.get(outcome).record(total, TimeUnit.MILLISECONDS);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,132 @@
+package backend.pipeline;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deadline for one external process (Potrace, FontForge).
+ *
+ * When the deadline passes, the process and every process it started are killed with
+ * {@link ProcessHandle#destroyForcibly()}. Killing the process also closes its pipes, so a
+ * caller blocked writing stdin or reading stdout is released as well, not only one blocked in
+ * {@link Process#waitFor()}. Closing the deadline before it expires disarms it and kills
+ * whatever is still running, which covers callers that bail out early or are interrupted.
+ *
+ * Usage:
+ * - {@code try (ProcessDeadline deadline = ProcessDeadline.start(process, timeoutMillis, name))}
+ * - talk to the process, then {@link #waitFor()} for its exit code
+ * - on an I/O error, {@link #check()} first, so a kill surfaces as an {@link ExpiredException}
+ */
+public final class ProcessDeadline implements AutoCloseable {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "process-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicInteger LIVE = new AtomicInteger();
+
+    private final Process process;
+    private final long timeoutMillis;
+    private final String description;
+    private final ScheduledFuture<?> kill;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean expired;
+
+    private ProcessDeadline(Process process, long timeoutMillis, String description) {
+        this.process = process;
+        this.timeoutMillis = timeoutMillis;
+        this.description = description;
+        this.kill = TIMER.schedule(this::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+        LIVE.incrementAndGet();
+    }
+
+    /**
+     * Arms a deadline for a process that has just been started.
+     *
+     * @param process The running process
+     * @param timeoutMillis Time the process may run
+     * @param description What the process is doing, for the timeout message
+     * @return The armed deadline; close it once the process is done
+     */
+    public static ProcessDeadline start(Process process, long timeoutMillis, String description) {
+        return new ProcessDeadline(process, timeoutMillis, description);
+    }
+
+    private void expire() {
+        expired = true;
+        destroyTree(process);
+    }
+
+    /**
+     * Waits for the process to exit.
+     *
+     * @return The exit code
+     * @throws ExpiredException If the process was killed because the deadline passed
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public int waitFor() throws ExpiredException, InterruptedException {
+        int exitCode = process.waitFor();
+        check();
+        return exitCode;
+    }
+
+    /**
+     * @throws ExpiredException If the process was killed because the deadline passed
+     */
+    public void check() throws ExpiredException {
+        if (expired) {
+            throw new ExpiredException(description + " did not finish within " + timeoutMillis + " ms");
+        }
+    }
+
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * Disarms the deadline and kills the process tree if it is still running.
+     */
+    @Override
+    public void close() {
+        kill.cancel(false);
+        if (process.isAlive()) {
+            destroyTree(process);
+        }
+        if (closed.compareAndSet(false, true)) {
+            LIVE.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return Number of external processes currently running under a deadline
+     */
+    public static int getLiveCount() {
+        return LIVE.get();
+    }
+
+    /**
+     * Forcibly kills a process and all of its descendants. Descendants are collected first,
+     * since they are re-parented and no longer reachable once the process is gone.
+     *
+     * @param process The process to kill
+     */
+    public static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Raised when an external process was killed because it ran past its deadline.
+     */
+    public static class ExpiredException extends IOException {
+        public ExpiredException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package backend.pipeline;
+
+import backend.config.ProcessingConfiguration;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the published job results in the storage directory within a size and age budget.
+ *
+ * Result directories are sharded by a hash prefix of the job id,
+ * {@code <storage>/jobs/<2 hex digits>/<job id>}, so no directory holds more than a small
+ * fraction of the jobs. Every result directory is recorded in an in-memory index with its size,
+ * when it was published and when its font was last downloaded. Eviction works from the index
+ * alone; the storage directory is only walked when the index file is missing.
+ *
+ * Every {@code storage.sweep-minutes}, and as soon as a new result pushes the total over the
+ * quota, the sweeper:
+ * - deletes results older than {@code storage.max-age-hours}
+ * - then deletes the least recently used results until the total is within {@code storage.max-mb}
+ * A limit of 0 disables it. A job whose result has been evicted answers 410 Gone.
+ *
+ * The index is persisted as {@value #INDEX_NAME} in the jobs directory: an append-only journal
+ * of added and removed results that is rewritten in one piece on every sweep and at shutdown,
+ * which is also when download times are saved. It is read back at startup; delete it to have it
+ * rebuilt from the result directories, which also moves results of the unsharded layout into
+ * their shards.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+@Component
+public class StorageManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageManager.class);
+    private static final String INDEX_NAME = "index.tsv";
+    private static final String ADDED = "+";
+    private static final String REMOVED = "-";
+    /** Job ids are UUIDs; anything else could name a path outside the jobs directory. */
+    private static final Pattern JOB_ID = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}");
+
+    /**
+     * Why a result was evicted.
+     */
+    public enum Reason {
+        /** Older than {@code storage.max-age-hours} */
+        AGE,
+        /** Least recently used while the storage was over {@code storage.max-mb} */
+        SIZE
+    }
+
+    @Autowired
+    private ProcessingConfiguration config;
+
+    private File jobsDirectory;
+    private File indexFile;
+    private long maxBytes;
+    private long maxAgeMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong ageEvictions = new AtomicLong();
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicBoolean sweepPending = new AtomicBoolean();
+    // Guards the index file only, so that appending a record never waits for a sweep
+    private final Object indexLock = new Object();
+    private ScheduledExecutorService timer;
+
+    /**
+     * Loads or rebuilds the index and starts the sweeper.
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        open();
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = TimeUnit.MINUTES.toMillis(config.getStorageSweepMinutes());
+        timer.scheduleWithFixedDelay(this::sweepQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads or rebuilds the index, without starting the sweeper.
+     */
+    void open() throws IOException {
+        jobsDirectory = new File(config.getStorageDirectory(), JobWorkspace.JOBS_DIRECTORY);
+        indexFile = new File(jobsDirectory, INDEX_NAME);
+        maxBytes = config.getStorageMaxMb() * 1024 * 1024;
+        maxAgeMillis = TimeUnit.HOURS.toMillis(config.getStorageMaxAgeHours());
+        Files.createDirectories(jobsDirectory.toPath());
+
+        if (indexFile.exists()) {
+            load();
+        } else {
+            rebuild();
+        }
+        compact();
+        logger.info("Storage index: {} results, {} bytes (quota {} MB, max age {}h)",
+            entries.size(), totalBytes.get(), config.getStorageMaxMb(), config.getStorageMaxAgeHours());
+    }
+
+    /**
+     * @param jobId Unique id of a job
+     * @return The job's result directory, which need not exist
+     */
+    public File resultDirectory(String jobId) {
+        return new File(new File(jobsDirectory, shardOf(jobId)), jobId);
+    }
+
+    /**
+     * Looks up a stored result by job id.
+     *
+     * @param jobId Id of a job, as given by a client
+     * @return The job's result directory, or null if the id is malformed or no result is stored
+     *         for it
+     */
+    public File find(String jobId) {
+        if (jobId == null || !JOB_ID.matcher(jobId).matches() || !entries.containsKey(jobId)) {
+            return null;
+        }
+        File resultDir = resultDirectory(jobId);
+        return resultDir.isDirectory() ? resultDir : null;
+    }
+
+    /**
+     * Records a newly published result directory.
+     *
+     * @param jobId Id of the job that published it
+     * @param resultDir The result directory
+     */
+    public void add(String jobId, File resultDir) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(measure(resultDir.toPath()), now, now);
+        Entry previous = entries.put(jobId, entry);
+        totalBytes.addAndGet(entry.bytes - (previous != null ? previous.bytes : 0));
+        journal(ADDED, jobId, entry);
+        requestSweepIfOverQuota();
+    }
+
+    /**
+     * Measures a result directory again after more artifacts were written to it, such as its
+     * archive pack.
+     *
+     * @param jobId Id of the job
+     */
+    public void update(String jobId) {
+        Entry entry = entries.computeIfPresent(jobId, (id, current) -> {
+            long bytes = measure(resultDirectory(id).toPath());
+            totalBytes.addAndGet(bytes - current.bytes);
+            current.bytes = bytes;
+            return current;
+        });
+        if (entry != null) {
+            journal(ADDED, jobId, entry);
+            requestSweepIfOverQuota();
+        }
+    }
+
+    /**
+     * Marks a result as used, so that it is evicted after results that were used less recently.
+     *
+     * @param jobId Id of the job
+     */
+    public void touch(String jobId) {
+        Entry entry = entries.get(jobId);
+        if (entry != null) {
+            entry.lastAccessMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Deletes results past their age, then the least recently used ones while over the quota,
+     * and rewrites the index file.
+     *
+     * The results are taken out of the index first and their directories deleted afterwards, so
+     * jobs publishing new results meanwhile do not wait for the deletions.
+     *
+     * @return Number of results evicted
+     */
+    public int sweep() {
+        List<File> evicted = new ArrayList<>();
+        synchronized (this) {
+            sweepPending.set(false);
+            if (maxAgeMillis > 0) {
+                long cutoff = System.currentTimeMillis() - maxAgeMillis;
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    if (entry.getValue().createdMillis < cutoff) {
+                        evict(entry.getKey(), Reason.AGE, evicted);
+                    }
+                }
+            }
+            if (maxBytes > 0 && totalBytes.get() > maxBytes) {
+                // Snapshot the access times: downloads keep updating them while the list is sorted
+                List<Map.Entry<String, Long>> byAccess = new ArrayList<>(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    byAccess.add(Map.entry(entry.getKey(), entry.getValue().lastAccessMillis));
+                }
+                byAccess.sort(Map.Entry.comparingByValue());
+                for (Map.Entry<String, Long> entry : byAccess) {
+                    if (totalBytes.get() <= maxBytes) {
+                        break;
+                    }
+                    evict(entry.getKey(), Reason.SIZE, evicted);
+                }
+            }
+            compact();
+        }
+        for (File resultDir : evicted) {
+            JobWorkspace.deleteTree(resultDir.toPath());
+        }
+        return evicted.size();
+    }
+
+    private void sweepQuietly() {
+        try {
+            int evicted = sweep();
+            if (evicted > 0) {
+                logger.info("Evicted {} job results; storage now holds {} results, {} bytes",
+                    evicted, entries.size(), totalBytes.get());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Storage sweep failed", e);
+        }
+    }
+
+    private void requestSweepIfOverQuota() {
+        if (maxBytes > 0 && totalBytes.get() > maxBytes && timer != null
+                && sweepPending.compareAndSet(false, true)) {
+            timer.execute(this::sweepQuietly);
+        }
+    }
+
+    /**
+     * Removes a result from the index and adds its directory to those to delete.
+     */
+    private void evict(String jobId, Reason reason, List<File> evicted) {
+        Entry entry = entries.remove(jobId);
+        if (entry == null) {
+            return;
+        }
+        totalBytes.addAndGet(-entry.bytes);
+        journal(REMOVED, jobId, entry);
+        evicted.add(resultDirectory(jobId));
+        (reason == Reason.AGE ? ageEvictions : sizeEvictions).incrementAndGet();
+        logger.debug("Evicted job result {} ({}, {} bytes)", jobId, reason, entry.bytes);
+    }
+
+    /**
+     * Replays the index file.
+     */
+    private void load() throws IOException {
+        for (String line : Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            try {
+                if (fields[0].equals(ADDED) && fields.length == 5) {
+                    Entry entry = new Entry(Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        Long.parseLong(fields[4]));
+                    Entry previous = entries.put(fields[1], entry);
+                    totalBytes.addAndGet(entry.bytes - (previous != null ? previous.bytes : 0));
+                } else if (fields[0].equals(REMOVED) && fields.length == 2) {
+                    Entry previous = entries.remove(fields[1]);
+                    if (previous != null) {
+                        totalBytes.addAndGet(-previous.bytes);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // A line cut short by a crash; the journal before it is still valid
+                logger.warn("Skipping corrupt storage index line: {}", line);
+            }
+        }
+    }
+
+    /**
+     * Builds the index from the result directories, moving results of the unsharded layout
+     * ({@code <storage>/jobs/<job id>}) into their shards on the way.
+     */
+    private void rebuild() throws IOException {
+        logger.info("No storage index found; rebuilding it from {}", jobsDirectory.getAbsolutePath());
+        File[] children = jobsDirectory.listFiles(File::isDirectory);
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String name = child.getName();
+            if (name.startsWith(JobWorkspace.STAGING_PREFIX)) {
+                continue;
+            }
+            if (isShard(name)) {
+                File[] results = child.listFiles(File::isDirectory);
+                if (results != null) {
+                    for (File result : results) {
+                        index(result.getName(), result);
+                    }
+                }
+            } else {
+                File sharded = resultDirectory(name);
+                Files.createDirectories(sharded.getParentFile().toPath());
+                JobWorkspace.move(child.toPath(), sharded.toPath());
+                index(name, sharded);
+            }
+        }
+    }
+
+    private void index(String jobId, File resultDir) {
+        long modified = resultDir.lastModified();
+        Entry entry = new Entry(measure(resultDir.toPath()), modified, modified);
+        entries.put(jobId, entry);
+        totalBytes.addAndGet(entry.bytes);
+    }
+
+    /**
+     * Appends one record to the index file.
+     */
+    private void journal(String operation, String jobId, Entry entry) {
+        synchronized (indexLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(record(operation, jobId, entry));
+            } catch (IOException e) {
+                // The entry stays in memory and is written with the next compaction
+                logger.warn("Failed to append to storage index: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rewrites the index file with one record per result, replacing it atomically.
+     */
+    private void compact() {
+        synchronized (indexLock) {
+            File temp = new File(jobsDirectory, INDEX_NAME + ".tmp");
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                        writer.write(record(ADDED, entry.getKey(), entry.getValue()));
+                    }
+                }
+                Files.move(temp.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                temp.delete();
+                logger.warn("Failed to rewrite storage index: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static String record(String operation, String jobId, Entry entry) {
+        if (operation.equals(REMOVED)) {
+            return REMOVED + "\t" + jobId + "\n";
+        }
+        return ADDED + "\t" + jobId + "\t" + entry.bytes + "\t" + entry.createdMillis + "\t"
+            + entry.lastAccessMillis + "\n";
+    }
+
+    /**
+     * @return The shard directory name of a job: the first byte of the SHA-256 of its id, in hex
+     */
+    static String shardOf(String jobId) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(jobId.getBytes(StandardCharsets.UTF_8));
+            return String.format("%02x", hash[0] & 0xff);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isShard(String name) {
+        return name.length() == 2 && Character.digit(name.charAt(0), 16) >= 0
+            && Character.digit(name.charAt(1), 16) >= 0;
+    }
+
+    private static long measure(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.mapToLong(path -> {
+                File file = path.toFile();
+                return file.isFile() ? file.length() : 0;
+            }).sum();
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return Number of results in storage
+     */
+    public int getResultCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return Total size of the results in storage
+     */
+    public long getUsedBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * @param reason Why results were evicted
+     * @return Number of results evicted for that reason since startup
+     */
+    public long getEvictions(Reason reason) {
+        return (reason == Reason.AGE ? ageEvictions : sizeEvictions).get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public File getJobsDirectory() {
+        return jobsDirectory;
+    }
+
+    /**
+     * Stops the sweeper and saves the index, including download times, when the application
+     * shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        compact();
+    }
+
+    /**
+     * Index record of one result directory.
+     */
+    private static final class Entry {
+        private volatile long bytes;
+        private final long createdMillis;
+        private volatile long lastAccessMillis;
+
+        private Entry(long bytes, long createdMillis, long lastAccessMillis) {
+            this.bytes = bytes;
+            this.createdMillis = createdMillis;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package backend.pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of font subsets, keyed by the font and a hash of the requested code point set.
+ *
+ * Clients rendering the same note or preview ask for the same subset again and again; the
+ * subset is cut from the font once and then served from the heap. Subsets are small (a few
+ * glyphs' outlines), so they are kept in an LRU map bounded by the total size of the cached
+ * subsets, and the least recently used subsets are dropped first.
+ *
+ * The cache is thread-safe.
+ */
+public class SubsetCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubsetCache.class);
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes Maximum total size of the cached subsets; 0 disables the cache
+     */
+    public SubsetCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        logger.info("Font subset cache: {} bytes", maxBytes);
+    }
+
+    /**
+     * Computes the cache key of a subset.
+     *
+     * @param font Identifies the font and the format the subset is sent in
+     * @param codepoints The requested code points
+     * @return Key made of the font and the hex-encoded SHA-256 of the code point set
+     */
+    public static String keyOf(String font, SortedSet<Integer> codepoints) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (int codepoint : codepoints) {
+                sha256.update((Integer.toHexString(codepoint) + ",").getBytes(StandardCharsets.US_ASCII));
+            }
+            return font + ":" + HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param key Key from {@link #keyOf(String, SortedSet)}
+     * @return The cached subset, or null on a miss
+     */
+    public byte[] get(String key) {
+        byte[] subset;
+        synchronized (entries) {
+            subset = entries.get(key);
+        }
+        (subset != null ? hits : misses).incrementAndGet();
+        return subset;
+    }
+
+    /**
+     * Stores a subset, dropping the least recently used subsets while over the size limit.
+     *
+     * @param key Key from {@link #keyOf(String, SortedSet)}
+     * @param subset The subset font file
+     */
+    public void put(String key, byte[] subset) {
+        if (subset.length > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            byte[] previous = entries.put(key, subset);
+            bytes += subset.length - (previous != null ? previous.length : 0);
+            Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().length;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return Lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Lookups that had to cut the subset
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Subsets dropped to stay within the size limit
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Total size of the cached subsets
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+}
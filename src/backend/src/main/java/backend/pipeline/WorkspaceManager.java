@@ -0,0 +1,239 @@
+package backend.pipeline;
+
+import backend.config.ProcessingConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Owns the temporary files of font jobs: job workspaces and spooled uploads.
+ *
+ * Everything lives under {@code storage.temp-directory} and is deleted as soon as the job that
+ * created it is done, instead of being left for {@link File#deleteOnExit()}, which only runs
+ * at JVM shutdown and keeps a reference to every registered path until then. Whatever is left
+ * behind anyway (a crash, a failed delete) is removed by a sweep:
+ * - at startup, if {@code storage.cleanup-on-startup} is set, every work directory and spooled
+ *   upload in the temp directory and every staging directory in the storage directory is deleted
+ * - every {@code storage.temp-sweep-minutes}, such entries that belong to no running job and
+ *   have not been modified for one sweep interval are deleted
+ * Other files in the temp directory are never touched, so it may be shared.
+ *
+ * @author TextToHandwriting Team
+ * @version 1.0
+ * @since 2024-01-15
+ */
+@Component
+public class WorkspaceManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkspaceManager.class);
+    private static final String DEFAULT_TEMP_DIRECTORY = "texttohandwriting";
+    private static final String SPOOL_PREFIX = "upload-";
+    private static final long USAGE_REFRESH_MILLIS = 10_000;
+
+    @Autowired
+    private ProcessingConfiguration config;
+
+    @Autowired
+    private StorageManager storage;
+
+    private File tempDirectory;
+    private File jobsDirectory;
+    private final Map<Path, Boolean> active = new ConcurrentHashMap<>();
+    private final AtomicLong activeWorkspaces = new AtomicLong();
+    private final AtomicLong orphansDeleted = new AtomicLong();
+    private volatile long usageBytes;
+    private volatile long usageMeasuredMillis;
+    private ScheduledExecutorService timer;
+
+    /**
+     * Creates the temp directory, cleans up after the previous run and starts the sweep.
+     */
+    @PostConstruct
+    public void initialize() throws IOException {
+        tempDirectory = config.getStorageTempDirectory() != null
+            ? new File(config.getStorageTempDirectory())
+            : new File(System.getProperty("java.io.tmpdir"), DEFAULT_TEMP_DIRECTORY);
+        jobsDirectory = new File(config.getStorageDirectory(), JobWorkspace.JOBS_DIRECTORY);
+        Files.createDirectories(tempDirectory.toPath());
+
+        if (config.isStorageCleanupOnStartup()) {
+            int deleted = sweep(0);
+            logger.info("Deleted {} leftover temp entries from a previous run", deleted);
+        }
+
+        int sweepMinutes = config.getStorageTempSweepMinutes();
+        if (sweepMinutes > 0) {
+            long intervalMillis = TimeUnit.MINUTES.toMillis(sweepMinutes);
+            timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "temp-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleWithFixedDelay(() -> {
+                try {
+                    int deleted = sweep(intervalMillis);
+                    if (deleted > 0) {
+                        logger.warn("Deleted {} orphaned temp entries", deleted);
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Temp sweep failed", e);
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Temp directory: {} (sweep every {} min)", tempDirectory.getAbsolutePath(), sweepMinutes);
+    }
+
+    /**
+     * Creates the workspace of a job; release it with {@link #release(JobWorkspace)}.
+     *
+     * @param jobId Unique id of the job
+     * @return The new workspace
+     * @throws IOException If its directories cannot be created
+     */
+    public JobWorkspace createWorkspace(String jobId) throws IOException {
+        JobWorkspace workspace = JobWorkspace.create(jobId, tempDirectory, jobsDirectory,
+            storage.resultDirectory(jobId));
+        active.put(workspace.getWorkDir().toPath(), Boolean.TRUE);
+        active.put(workspace.getStagingDir().toPath(), Boolean.TRUE);
+        activeWorkspaces.incrementAndGet();
+        return workspace;
+    }
+
+    /**
+     * Deletes the work directory of a finished job, and its staging directory if it did not
+     * publish.
+     *
+     * @param workspace The job's workspace
+     */
+    public void release(JobWorkspace workspace) {
+        workspace.cleanUp();
+        active.remove(workspace.getWorkDir().toPath());
+        active.remove(workspace.getStagingDir().toPath());
+        activeWorkspaces.decrementAndGet();
+    }
+
+    /**
+     * Creates a file to spool an upload to; release it with {@link #release(File)}.
+     *
+     * @return The new, empty file
+     * @throws IOException If the file cannot be created
+     */
+    public File createSpoolFile() throws IOException {
+        File spool = File.createTempFile(SPOOL_PREFIX, ".zip", tempDirectory);
+        active.put(spool.toPath(), Boolean.TRUE);
+        return spool;
+    }
+
+    /**
+     * Deletes a spooled upload.
+     *
+     * @param spool File from {@link #createSpoolFile()}
+     */
+    public void release(File spool) {
+        if (!spool.delete() && spool.exists()) {
+            logger.debug("Failed to delete spooled upload: {}", spool.getName());
+        }
+        active.remove(spool.toPath());
+    }
+
+    /**
+     * Deletes temp entries and staging directories that belong to no running job.
+     *
+     * @param minAgeMillis Only entries not modified for this long are deleted
+     * @return Number of entries deleted
+     */
+    private int sweep(long minAgeMillis) {
+        long cutoff = System.currentTimeMillis() - minAgeMillis;
+        int deleted = 0;
+        File[] temps = tempDirectory.listFiles((dir, name) ->
+            name.startsWith(JobWorkspace.WORK_PREFIX) || name.startsWith(SPOOL_PREFIX));
+        if (temps != null) {
+            for (File entry : temps) {
+                deleted += deleteIfOrphaned(entry, cutoff);
+            }
+        }
+        File[] staged = jobsDirectory.listFiles((dir, name) -> name.startsWith(JobWorkspace.STAGING_PREFIX));
+        if (staged != null) {
+            for (File entry : staged) {
+                deleted += deleteIfOrphaned(entry, cutoff);
+            }
+        }
+        orphansDeleted.addAndGet(deleted);
+        return deleted;
+    }
+
+    private int deleteIfOrphaned(File entry, long cutoff) {
+        if (active.containsKey(entry.toPath()) || entry.lastModified() > cutoff) {
+            return 0;
+        }
+        JobWorkspace.deleteTree(entry.toPath());
+        return entry.exists() ? 0 : 1;
+    }
+
+    /**
+     * @return Total size of the files in the temp directory, measured at most
+     *         {@value #USAGE_REFRESH_MILLIS} ms ago
+     */
+    public long getTempUsageBytes() {
+        long now = System.currentTimeMillis();
+        if (now - usageMeasuredMillis > USAGE_REFRESH_MILLIS) {
+            usageMeasuredMillis = now;
+            usageBytes = measure(tempDirectory.toPath());
+        }
+        return usageBytes;
+    }
+
+    private long measure(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.mapToLong(path -> {
+                File file = path.toFile();
+                return file.isFile() ? file.length() : 0;
+            }).sum();
+        } catch (IOException | RuntimeException e) {
+            // An entry was deleted while walking; keep the last value until the next measurement
+            return usageBytes;
+        }
+    }
+
+    public File getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @return Number of job workspaces currently in use
+     */
+    public long getActiveWorkspaces() {
+        return activeWorkspaces.get();
+    }
+
+    /**
+     * @return Number of orphaned temp entries deleted since startup, including at startup
+     */
+    public long getOrphansDeleted() {
+        return orphansDeleted.get();
+    }
+
+    /**
+     * Stops the sweep when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package backend.vectorize;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link GlyphVectorizer} decorator that answers from an {@link OutlineCache} and only traces
+ * glyphs whose bitmap has not been seen with the same tracer settings before.
+ */
+public class CachingGlyphVectorizer implements GlyphVectorizer {
+
+    private final GlyphVectorizer delegate;
+    private final OutlineCache cache;
+
+    /**
+     * @param delegate The vectorizer that traces cache misses
+     * @param cache The outline cache
+     */
+    public CachingGlyphVectorizer(GlyphVectorizer delegate, OutlineCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public GlyphOutline vectorize(GlyphBitmap glyph, File scratchDir, String glyphName)
+        throws IOException, InterruptedException {
+        String key = OutlineCache.keyOf(delegate.getSettings(), glyph);
+        GlyphOutline outline = cache.get(key);
+        if (outline == null) {
+            outline = delegate.vectorize(glyph, scratchDir, glyphName);
+            cache.put(key, outline);
+        }
+        return outline;
+    }
+
+    @Override
+    public String getSettings() {
+        return delegate.getSettings();
+    }
+}
@@ -0,0 +1,252 @@
+package backend.vectorize;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-process {@link GlyphVectorizer} that traces glyphs without spawning any external process.
+ *
+ * The algorithm follows the same broad steps as Potrace, with fixed parameters equal to
+ * Potrace's defaults:
+ * 1. Binarize the image at 50% luminance
+ * 2. Walk the pixel-edge boundaries of every black region and hole (black kept 8-connected)
+ * 3. Drop specks with an area of at most {@value #TURD_SIZE} pixels
+ * 4. Simplify each boundary polygon (Douglas-Peucker, 1 px tolerance)
+ * 5. Fit Bezier curves through the polygon, keeping vertices sharper than
+ *    {@value #ALPHA_MAX} as corners
+ *
+ * Outer boundaries and holes come out with opposite orientation, matching Potrace's output,
+ * so the result renders correctly with the non-zero fill rule.
+ */
+public class ContourTracingVectorizer implements GlyphVectorizer {
+
+    private static final int TURD_SIZE = 2;
+    private static final double ALPHA_MAX = 1.0;
+    private static final double SIMPLIFY_TOLERANCE = 1.0;
+
+    // Directions in image space (y down): +x, +y, -x, -y
+    private static final int[] DX = {1, 0, -1, 0};
+    private static final int[] DY = {0, 1, 0, -1};
+
+    @Override
+    public String getSettings() {
+        return "contour-tracing turdsize=" + TURD_SIZE + " alphamax=" + ALPHA_MAX
+            + " tolerance=" + SIMPLIFY_TOLERANCE + " threshold=" + Ink.describe();
+    }
+
+    @Override
+    public GlyphOutline vectorize(GlyphBitmap glyph, File scratchDir, String glyphName) {
+        GlyphOutline.Builder builder = new GlyphOutline.Builder(glyph.getWidth(), glyph.getHeight());
+        for (int[] polygon : traceBoundaries(glyph)) {
+            if (Math.abs(signedArea(polygon)) <= TURD_SIZE) {
+                continue;
+            }
+            int[] simplified = simplify(polygon);
+            if (simplified.length >= 6) {
+                fitCurves(simplified, builder);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Follows every boundary between ink and paper along pixel edges, keeping ink on the right.
+     * Each boundary contains at least one rightward edge along the top of an ink pixel, so
+     * scanning for unvisited top edges finds every outer boundary and every hole exactly once.
+     *
+     * @return Closed polygons as flat x/y arrays of their corner vertices
+     */
+    private List<int[]> traceBoundaries(GlyphBitmap ink) {
+        List<int[]> polygons = new ArrayList<>();
+        int width = ink.getWidth();
+        int height = ink.getHeight();
+        GlyphBitmap topVisited = new GlyphBitmap(width, height);
+
+        for (int y0 = 0; y0 < height; y0++) {
+            for (int x0 = 0; x0 < width; x0++) {
+                if (!ink.isInk(x0, y0) || topVisited.isInk(x0, y0) || ink.isInk(x0, y0 - 1)) {
+                    continue;
+                }
+
+                IntList corners = new IntList();
+                corners.add(x0, y0);
+                int x = x0, y = y0, d = 0;
+                do {
+                    if (d == 0) {
+                        topVisited.set(x, y);
+                    }
+                    x += DX[d];
+                    y += DY[d];
+
+                    int right = (d + 1) & 3;
+                    int left = (d + 3) & 3;
+                    boolean inkAheadLeft = ink.isInk(
+                        pixel(x, DX[d] - DX[right]), pixel(y, DY[d] - DY[right]));
+                    boolean inkAheadRight = ink.isInk(
+                        pixel(x, DX[d] + DX[right]), pixel(y, DY[d] + DY[right]));
+
+                    // Turning left when ink is ahead-left also joins diagonally touching pixels
+                    int next = inkAheadLeft ? left : inkAheadRight ? d : right;
+                    if (next != d) {
+                        corners.add(x, y);
+                    }
+                    d = next;
+                } while (x != x0 || y != y0 || d != 0);
+
+                int[] polygon = corners.toArray();
+                int n = polygon.length;
+                if (n > 2 && polygon[n - 2] == x0 && polygon[n - 1] == y0) {
+                    polygon = Arrays.copyOf(polygon, n - 2);
+                }
+                polygons.add(polygon);
+            }
+        }
+        return polygons;
+    }
+
+    /**
+     * Pixel coordinate lying half a step from a vertex coordinate in the given direction sign.
+     */
+    private static int pixel(int vertex, int sign) {
+        return sign > 0 ? vertex : vertex - 1;
+    }
+
+    private static double signedArea(int[] polygon) {
+        long twiceArea = 0;
+        int n = polygon.length / 2;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            twiceArea += (long) polygon[2 * i] * polygon[2 * j + 1] - (long) polygon[2 * j] * polygon[2 * i + 1];
+        }
+        return twiceArea / 2.0;
+    }
+
+    /**
+     * Douglas-Peucker simplification of a closed polygon. The staircase of axis-aligned pixel
+     * edges collapses into straight runs while real corners survive.
+     */
+    private int[] simplify(int[] polygon) {
+        int n = polygon.length / 2;
+        if (n <= 4) {
+            return polygon;
+        }
+        // Split the ring at vertex 0 and the vertex farthest from it
+        int far = 0;
+        long farDist = -1;
+        for (int i = 1; i < n; i++) {
+            long dx = polygon[2 * i] - polygon[0];
+            long dy = polygon[2 * i + 1] - polygon[1];
+            long dist = dx * dx + dy * dy;
+            if (dist > farDist) {
+                farDist = dist;
+                far = i;
+            }
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[far] = true;
+        simplifyRange(polygon, n, 0, far, keep);
+        simplifyRange(polygon, n, far, n, keep);
+
+        IntList result = new IntList();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result.add(polygon[2 * i], polygon[2 * i + 1]);
+            }
+        }
+        return result.toArray();
+    }
+
+    private void simplifyRange(int[] polygon, int n, int from, int to, boolean[] keep) {
+        if (to - from < 2) {
+            return;
+        }
+        double ax = polygon[2 * from], ay = polygon[2 * from + 1];
+        double bx = polygon[2 * (to % n)], by = polygon[2 * (to % n) + 1];
+        double length = Math.hypot(bx - ax, by - ay);
+
+        int worst = -1;
+        double worstDist = SIMPLIFY_TOLERANCE;
+        for (int i = from + 1; i < to; i++) {
+            double px = polygon[2 * i], py = polygon[2 * i + 1];
+            double dist = length == 0
+                ? Math.hypot(px - ax, py - ay)
+                : Math.abs((bx - ax) * (ay - py) - (ax - px) * (by - ay)) / length;
+            if (dist > worstDist) {
+                worstDist = dist;
+                worst = i;
+            }
+        }
+        if (worst >= 0) {
+            keep[worst] = true;
+            simplifyRange(polygon, n, from, worst, keep);
+            simplifyRange(polygon, n, worst, to, keep);
+        }
+    }
+
+    /**
+     * Potrace-style smoothing: every polygon vertex becomes either a corner or a Bezier curve
+     * between the midpoints of its two adjacent edges, depending on how sharply the polygon
+     * turns there.
+     */
+    private void fitCurves(int[] polygon, GlyphOutline.Builder builder) {
+        int n = polygon.length / 2;
+        builder.moveTo(
+            (polygon[2 * (n - 1)] + polygon[0]) / 2.0,
+            (polygon[2 * (n - 1) + 1] + polygon[1]) / 2.0);
+
+        for (int j = 0; j < n; j++) {
+            int i = (j + n - 1) % n;
+            int k = (j + 1) % n;
+            double ix = polygon[2 * i], iy = polygon[2 * i + 1];
+            double jx = polygon[2 * j], jy = polygon[2 * j + 1];
+            double kx = polygon[2 * k], ky = polygon[2 * k + 1];
+            double endX = (jx + kx) / 2.0;
+            double endY = (jy + ky) / 2.0;
+
+            double alpha;
+            double denom = Math.signum(kx - ix) * (kx - ix) + Math.signum(ky - iy) * (ky - iy);
+            if (denom != 0) {
+                double dd = Math.abs(((jx - ix) * (ky - iy) - (kx - ix) * (jy - iy)) / denom);
+                alpha = (dd > 1 ? (1 - 1.0 / dd) : 0) / 0.75;
+            } else {
+                alpha = 4.0 / 3.0;
+            }
+
+            if (alpha >= ALPHA_MAX) {
+                builder.lineTo(jx, jy);
+                builder.lineTo(endX, endY);
+            } else {
+                alpha = Math.max(0.55, Math.min(1.0, alpha));
+                double t = 0.5 + 0.5 * alpha;
+                builder.curveTo(
+                    ix + t * (jx - ix), iy + t * (jy - iy),
+                    kx + t * (jx - kx), ky + t * (jy - ky),
+                    endX, endY);
+            }
+        }
+        builder.closePath();
+    }
+
+    /**
+     * Growable list of int coordinate pairs.
+     */
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int x, int y) {
+            if (size + 2 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = x;
+            values[size++] = y;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package backend.vectorize;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Bit-packed 1-bit glyph raster: the pipeline's representation of a glyph between decoding
+ * and vectorization.
+ *
+ * Each row is stored as 64-bit words, most significant bit first, so pixel x of row y is bit
+ * {@code 63 - (x & 63)} of word {@code y * wordsPerRow + (x >>> 6)}; a set bit is ink. Bits past
+ * the right edge of a row are always clear. Compared to holding the decoded ARGB image this
+ * uses 32 times less memory per glyph.
+ *
+ * A bitmap built with {@link #fromImage(BufferedImage)} is already cropped to the glyph's
+ * content and remembers where that crop sits in the source canvas.
+ */
+public final class GlyphBitmap {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+    private final Rectangle bounds;
+
+    /**
+     * Creates a blank bitmap.
+     *
+     * @param width Width in pixels
+     * @param height Height in pixels
+     */
+    public GlyphBitmap(int width, int height) {
+        this(width, height, new Rectangle(0, 0, width, height));
+    }
+
+    private GlyphBitmap(int width, int height, Rectangle bounds) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+        this.bounds = bounds;
+    }
+
+    /**
+     * Crops a decoded glyph image to its non-white content and thresholds it with the shared
+     * ink rule. Only the pixels inside the content bounds are thresholded, 64 at a time into
+     * whole words.
+     *
+     * @param image The decoded glyph image
+     * @return The cropped bitmap; the full canvas if the image is blank
+     */
+    public static GlyphBitmap fromImage(BufferedImage image) {
+        Rectangle content = GlyphRaster.contentBounds(image);
+        if (content == null) {
+            content = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        }
+        GlyphBitmap bitmap = new GlyphBitmap(content.width, content.height, content);
+        GlyphRaster.threshold(image, content.x, content.y, bitmap);
+        return bitmap;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Number of 64-bit words in each row
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @return Position and size of this bitmap within the source canvas it was cropped from
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * @return true if the pixel is inside the bitmap and ink
+     */
+    public boolean isInk(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (words[y * wordsPerRow + (x >>> 6)] & (Long.MIN_VALUE >>> (x & 63))) != 0;
+    }
+
+    /**
+     * Marks one pixel as ink.
+     */
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= Long.MIN_VALUE >>> (x & 63);
+    }
+
+    /**
+     * @param y Row index
+     * @param index Word index within the row
+     * @return 64 pixels of the row, leftmost pixel in the most significant bit
+     */
+    public long word(int y, int index) {
+        return words[y * wordsPerRow + index];
+    }
+
+    void setWord(int y, int index, long value) {
+        words[y * wordsPerRow + index] = value;
+    }
+
+    /**
+     * Copies one row into a byte array, eight pixels per byte, most significant bit first.
+     * This is the row layout of both PBM and 1-bit BMP files.
+     *
+     * @param y Row index
+     * @param out Destination array
+     * @param offset Position of the row's first byte in {@code out}
+     */
+    public void packRow(int y, byte[] out, int offset) {
+        int rowBytes = (width + 7) >>> 3;
+        int base = y * wordsPerRow;
+        for (int i = 0; i < rowBytes; i++) {
+            out[offset + i] = (byte) (words[base + (i >>> 3)] >>> (56 - 8 * (i & 7)));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package backend.vectorize;
+
+import java.util.Arrays;
+
+/**
+ * Vector outline of a single glyph, as produced by a {@link GlyphVectorizer}.
+ *
+ * Coordinates are in pixels of the cropped glyph bitmap: the origin is the top-left corner
+ * and y grows downwards. Paths are stored compactly as an opcode array plus a flat coordinate
+ * array, which keeps outlines cheap to copy, cache and serialize.
+ */
+public final class GlyphOutline {
+
+    public static final byte MOVE_TO = 0;
+    public static final byte LINE_TO = 1;
+    public static final byte CURVE_TO = 2;
+    public static final byte CLOSE = 3;
+
+    private final int width;
+    private final int height;
+    private final byte[] ops;
+    private final double[] coords;
+
+    public GlyphOutline(int width, int height, byte[] ops, double[] coords) {
+        this.width = width;
+        this.height = height;
+        this.ops = ops;
+        this.coords = coords;
+    }
+
+    /**
+     * Gets the width of the bitmap this outline was traced from.
+     * @return Width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the bitmap this outline was traced from.
+     * @return Height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the path opcodes ({@link #MOVE_TO}, {@link #LINE_TO}, {@link #CURVE_TO}, {@link #CLOSE}).
+     * MOVE_TO and LINE_TO consume two coordinates, CURVE_TO consumes six and CLOSE none.
+     * @return The opcode array (not copied)
+     */
+    public byte[] getOps() {
+        return ops;
+    }
+
+    /**
+     * Gets the flat x/y coordinate array consumed by {@link #getOps()}.
+     * @return The coordinate array (not copied)
+     */
+    public double[] getCoords() {
+        return coords;
+    }
+
+    /**
+     * @return true if the outline has no contours (e.g. a blank glyph image)
+     */
+    public boolean isEmpty() {
+        return ops.length == 0;
+    }
+
+    /**
+     * Incrementally builds a {@link GlyphOutline}.
+     */
+    public static final class Builder {
+
+        private final int width;
+        private final int height;
+        private byte[] ops = new byte[64];
+        private double[] coords = new double[256];
+        private int opCount;
+        private int coordCount;
+
+        public Builder(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        public Builder moveTo(double x, double y) {
+            addOp(MOVE_TO, 2);
+            coords[coordCount++] = x;
+            coords[coordCount++] = y;
+            return this;
+        }
+
+        public Builder lineTo(double x, double y) {
+            addOp(LINE_TO, 2);
+            coords[coordCount++] = x;
+            coords[coordCount++] = y;
+            return this;
+        }
+
+        public Builder curveTo(double x1, double y1, double x2, double y2, double x, double y) {
+            addOp(CURVE_TO, 6);
+            coords[coordCount++] = x1;
+            coords[coordCount++] = y1;
+            coords[coordCount++] = x2;
+            coords[coordCount++] = y2;
+            coords[coordCount++] = x;
+            coords[coordCount++] = y;
+            return this;
+        }
+
+        public Builder closePath() {
+            addOp(CLOSE, 0);
+            return this;
+        }
+
+        private void addOp(byte op, int coordsNeeded) {
+            if (opCount == ops.length) {
+                ops = Arrays.copyOf(ops, opCount * 2);
+            }
+            if (coordCount + coordsNeeded > coords.length) {
+                coords = Arrays.copyOf(coords, Math.max(coords.length * 2, coordCount + coordsNeeded));
+            }
+            ops[opCount++] = op;
+        }
+
+        public GlyphOutline build() {
+            return new GlyphOutline(width, height,
+                Arrays.copyOf(ops, opCount), Arrays.copyOf(coords, coordCount));
+        }
+    }
+}
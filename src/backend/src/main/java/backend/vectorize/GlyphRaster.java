@@ -0,0 +1,236 @@
+package backend.vectorize;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Raster fast paths for the per-glyph pixel work: finding the content bounds and thresholding.
+ *
+ * For the image types ImageIO produces from PNGs (8-bit gray, BGR, ABGR, and packed int RGB)
+ * pixels are read straight from the backing {@link DataBuffer} arrays instead of through
+ * {@link BufferedImage#getRGB(int, int)}, which costs a color-model conversion and several
+ * virtual calls per pixel. Other image types fall back to {@code getRGB}. Both paths yield
+ * exactly the ARGB values {@code getRGB} would, so results do not depend on the image type.
+ */
+public final class GlyphRaster {
+
+    /** Channel value above which a pixel counts as paper when trimming. */
+    private static final int WHITE_THRESHOLD = 245;
+
+    /** sRGB value {@code getRGB} reports for each linear 8-bit gray level. */
+    private static final int[] GRAY_TO_ARGB = grayToArgb();
+
+    private GlyphRaster() {
+    }
+
+    /**
+     * Finds the smallest rectangle containing every pixel that is not white or near-white.
+     * Scans inward from each of the four edges and stops at the first content pixel, so a
+     * glyph surrounded by a wide margin costs little more than the margin itself.
+     *
+     * @param image The glyph image
+     * @return The content bounds, or null if the image is blank
+     */
+    public static Rectangle contentBounds(BufferedImage image) {
+        Pixels pixels = new Pixels(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int top = 0;
+        while (top < height && isWhiteRow(pixels, top, width)) {
+            top++;
+        }
+        if (top == height) {
+            return null;
+        }
+        int bottom = height - 1;
+        while (bottom > top && isWhiteRow(pixels, bottom, width)) {
+            bottom--;
+        }
+        int left = 0;
+        while (isWhiteColumn(pixels, left, top, bottom)) {
+            left++;
+        }
+        int right = width - 1;
+        while (right > left && isWhiteColumn(pixels, right, top, bottom)) {
+            right--;
+        }
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    /**
+     * Thresholds a region of an image into a bitmap of the same size with the shared
+     * {@link Ink} rule. Pixels are accumulated 64 at a time and stored as whole words.
+     *
+     * @param image The source image
+     * @param x0 Left edge of the region in {@code image}
+     * @param y0 Top edge of the region in {@code image}
+     * @param into Blank bitmap whose size is the size of the region
+     */
+    static void threshold(BufferedImage image, int x0, int y0, GlyphBitmap into) {
+        Pixels pixels = new Pixels(image);
+        int width = into.getWidth();
+        for (int y = 0; y < into.getHeight(); y++) {
+            for (int index = 0, x = 0; x < width; index++) {
+                int end = Math.min(width, x + 64);
+                long word = 0;
+                long bit = Long.MIN_VALUE;
+                for (; x < end; x++, bit >>>= 1) {
+                    if (Ink.isInk(pixels.argb(x0 + x, y0 + y))) {
+                        word |= bit;
+                    }
+                }
+                into.setWord(y, index, word);
+            }
+        }
+    }
+
+    private static boolean isWhiteRow(Pixels pixels, int y, int width) {
+        for (int x = 0; x < width; x++) {
+            if (!isWhite(pixels.argb(x, y))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhiteColumn(Pixels pixels, int x, int top, int bottom) {
+        for (int y = top; y <= bottom; y++) {
+            if (!isWhite(pixels.argb(x, y))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if a pixel is white or near-white. Alpha is ignored.
+     *
+     * @param argb The pixel value
+     * @return true if all three color channels are near-white
+     */
+    public static boolean isWhite(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        return r > WHITE_THRESHOLD && g > WHITE_THRESHOLD && b > WHITE_THRESHOLD;
+    }
+
+    private static int[] grayToArgb() {
+        BufferedImage ramp = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] levels = ((DataBufferByte) ramp.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < 256; i++) {
+            levels[i] = (byte) i;
+        }
+        return ramp.getRGB(0, 0, 256, 1, null, 0, 256);
+    }
+
+    /**
+     * Direct ARGB access to an image's pixels. Resolves the array, strides and channel offsets
+     * once, so each read is plain array indexing; subimages are handled through the raster's
+     * sample model translation.
+     */
+    private static final class Pixels {
+        private static final int INT_RGB = 0;
+        private static final int INT_ARGB = 1;
+        private static final int BYTE_GRAY = 2;
+        private static final int BYTE_BGR = 3;
+        private static final int BYTE_ABGR = 4;
+        private static final int FALLBACK = 5;
+
+        private final BufferedImage image;
+        private final int kind;
+        private final int[] ints;
+        private final byte[] bytes;
+        private final int origin;
+        private final int pixelStride;
+        private final int scanlineStride;
+
+        Pixels(BufferedImage image) {
+            this.image = image;
+            Raster raster = image.getRaster();
+            SampleModel model = raster.getSampleModel();
+            DataBuffer buffer = raster.getDataBuffer();
+            int kind = FALLBACK;
+            int[] ints = null;
+            byte[] bytes = null;
+            int pixelStride = 0;
+            int scanlineStride = 0;
+            int origin = 0;
+
+            if (buffer.getNumBanks() == 1 && buffer instanceof DataBufferInt
+                && model instanceof SinglePixelPackedSampleModel
+                && (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+                kind = image.getType() == BufferedImage.TYPE_INT_RGB ? INT_RGB : INT_ARGB;
+                ints = ((DataBufferInt) buffer).getData();
+                pixelStride = 1;
+                scanlineStride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+                origin = buffer.getOffset();
+            } else if (buffer.getNumBanks() == 1 && buffer instanceof DataBufferByte
+                && model instanceof ComponentSampleModel) {
+                ComponentSampleModel components = (ComponentSampleModel) model;
+                int[] bands = components.getBandOffsets();
+                switch (image.getType()) {
+                    case BufferedImage.TYPE_BYTE_GRAY:
+                        kind = BYTE_GRAY;
+                        origin = bands[0];
+                        break;
+                    case BufferedImage.TYPE_3BYTE_BGR:
+                        // Bands are R, G, B at offsets 2, 1, 0
+                        kind = bands[0] == bands[2] + 2 ? BYTE_BGR : FALLBACK;
+                        origin = bands[2];
+                        break;
+                    case BufferedImage.TYPE_4BYTE_ABGR:
+                        // Bands are R, G, B, A at offsets 3, 2, 1, 0
+                        kind = bands[0] == bands[3] + 3 ? BYTE_ABGR : FALLBACK;
+                        origin = bands[3];
+                        break;
+                    default:
+                        break;
+                }
+                bytes = ((DataBufferByte) buffer).getData();
+                pixelStride = components.getPixelStride();
+                scanlineStride = components.getScanlineStride();
+                origin += buffer.getOffset();
+            }
+
+            if (kind != FALLBACK) {
+                // Subimages share the parent's array; shift to this image's first pixel
+                origin += -raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX() * pixelStride;
+            }
+            this.kind = kind;
+            this.ints = ints;
+            this.bytes = bytes;
+            this.origin = origin;
+            this.pixelStride = pixelStride;
+            this.scanlineStride = scanlineStride;
+        }
+
+        int argb(int x, int y) {
+            int i = origin + y * scanlineStride + x * pixelStride;
+            switch (kind) {
+                case INT_RGB:
+                    return 0xFF000000 | ints[i];
+                case INT_ARGB:
+                    return ints[i];
+                case BYTE_GRAY:
+                    return GRAY_TO_ARGB[bytes[i] & 0xFF];
+                case BYTE_BGR:
+                    return 0xFF000000 | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i] & 0xFF);
+                case BYTE_ABGR:
+                    return (bytes[i] & 0xFF) << 24 | (bytes[i + 3] & 0xFF) << 16
+                        | (bytes[i + 2] & 0xFF) << 8 | (bytes[i + 1] & 0xFF);
+                default:
+                    return image.getRGB(x, y);
+            }
+        }
+    }
+}
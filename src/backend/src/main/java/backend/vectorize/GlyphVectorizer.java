@@ -0,0 +1,34 @@
+package backend.vectorize;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts a cropped 1-bit glyph bitmap into a vector outline.
+ *
+ * Implementations must be thread-safe: a single instance is shared by all glyph workers.
+ * The implementation in use is selected with the {@code processing.vectorizer} property.
+ */
+public interface GlyphVectorizer {
+
+    /**
+     * Traces the ink pixels of a glyph.
+     *
+     * @param glyph The cropped, thresholded glyph
+     * @param scratchDir Job directory the vectorizer may use for intermediate files
+     * @param glyphName Base name of the glyph (e.g. "glyph_65"), used to name intermediate files
+     * @return The traced outline, in pixel coordinates of {@code glyph}
+     * @throws IOException If tracing fails
+     * @throws InterruptedException If the job is cancelled while tracing
+     */
+    GlyphOutline vectorize(GlyphBitmap glyph, File scratchDir, String glyphName)
+        throws IOException, InterruptedException;
+
+    /**
+     * Identifies this vectorizer and every setting that affects its output. Outlines are only
+     * reused from the {@link OutlineCache} for glyphs traced with identical settings.
+     *
+     * @return A stable description of the tracer configuration
+     */
+    String getSettings();
+}
@@ -0,0 +1,31 @@
+package backend.vectorize;
+
+/**
+ * The single ink/paper decision shared by every vectorizer, so Potrace and the in-process
+ * tracer see the same binarized glyph: a pixel is ink when it is opaque and darker than
+ * 50% luminance (Potrace's default threshold).
+ */
+final class Ink {
+
+    private static final int LUMINANCE_THRESHOLD = 128;
+
+    private Ink() {
+    }
+
+    static boolean isInk(int argb) {
+        if ((argb >>> 24) < 128) {
+            return false;
+        }
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000 < LUMINANCE_THRESHOLD;
+    }
+
+    /**
+     * @return The threshold rule, for inclusion in cache keys
+     */
+    static String describe() {
+        return "luminance<" + LUMINANCE_THRESHOLD + ",alpha>=128";
+    }
+}
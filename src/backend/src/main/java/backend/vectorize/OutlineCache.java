@@ -0,0 +1,290 @@
+package backend.vectorize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed cache of traced glyph outlines.
+ *
+ * Keys are the SHA-256 of the tracer settings plus the packed {@link GlyphBitmap}, so a glyph
+ * that was redrawn misses while every unchanged glyph of a resubmitted font hits, whatever its
+ * file name. Entries live in two tiers:
+ * - an on-heap LRU map bounded by entry count
+ * - a spill directory that receives entries evicted from the heap, bounded by total bytes and
+ *   trimmed oldest-first; entries read back from it are promoted to the heap again
+ *
+ * The cache is thread-safe. Disk I/O is never done while holding the heap lock.
+ */
+public class OutlineCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutlineCache.class);
+    private static final int SPILL_MAGIC = 0x474F4C31; // "GOL1"
+    private static final String SPILL_SUFFIX = ".outline";
+
+    private final int maxEntries;
+    private final File spillDir;
+    private final long maxSpillBytes;
+    private final LinkedHashMap<String, GlyphOutline> heap = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong spillBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong spillHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries Maximum number of outlines kept on the heap
+     * @param spillDir Directory for evicted outlines, or null to drop them instead
+     * @param maxSpillBytes Maximum total size of the spill directory
+     */
+    public OutlineCache(int maxEntries, File spillDir, long maxSpillBytes) {
+        this.maxEntries = maxEntries;
+        this.spillDir = spillDir != null && maxSpillBytes > 0 ? spillDir : null;
+        this.maxSpillBytes = maxSpillBytes;
+        if (this.spillDir != null) {
+            if (!this.spillDir.isDirectory() && !this.spillDir.mkdirs()) {
+                logger.warn("Failed to create outline cache directory: {}", this.spillDir.getAbsolutePath());
+            }
+            for (File file : listSpillFiles()) {
+                spillBytes.addAndGet(file.length());
+            }
+        }
+        logger.info("Outline cache ready ({} entries on heap, spill directory: {})", maxEntries, this.spillDir);
+    }
+
+    /**
+     * Computes the cache key of a glyph.
+     *
+     * @param settings Identifies the tracer and every setting that affects its output
+     * @param glyph The thresholded glyph
+     * @return Hex-encoded SHA-256 digest
+     */
+    public static String keyOf(String settings, GlyphBitmap glyph) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        sha256.update(settings.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer row = ByteBuffer.allocate(8 + glyph.getWordsPerRow() * 8);
+        row.putInt(glyph.getWidth()).putInt(glyph.getHeight());
+        sha256.update(row.array(), 0, 8);
+        for (int y = 0; y < glyph.getHeight(); y++) {
+            row.clear();
+            for (int i = 0; i < glyph.getWordsPerRow(); i++) {
+                row.putLong(glyph.word(y, i));
+            }
+            sha256.update(row.array(), 0, row.position());
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    /**
+     * Looks up an outline, first on the heap and then in the spill directory.
+     *
+     * @param key Key from {@link #keyOf(String, GlyphBitmap)}
+     * @return The cached outline, or null on a miss
+     */
+    public GlyphOutline get(String key) {
+        synchronized (heap) {
+            GlyphOutline outline = heap.get(key);
+            if (outline != null) {
+                hits.incrementAndGet();
+                return outline;
+            }
+        }
+        GlyphOutline spilled = readSpill(key);
+        if (spilled != null) {
+            spillHits.incrementAndGet();
+            put(key, spilled);
+            return spilled;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores an outline on the heap, spilling the least recently used entries if the heap is full.
+     *
+     * @param key Key from {@link #keyOf(String, GlyphBitmap)}
+     * @param outline The traced outline
+     */
+    public void put(String key, GlyphOutline outline) {
+        List<Map.Entry<String, GlyphOutline>> evicted = new ArrayList<>();
+        synchronized (heap) {
+            heap.put(key, outline);
+            Iterator<Map.Entry<String, GlyphOutline>> eldest = heap.entrySet().iterator();
+            while (heap.size() > maxEntries && eldest.hasNext()) {
+                evicted.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        for (Map.Entry<String, GlyphOutline> entry : evicted) {
+            writeSpill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private GlyphOutline readSpill(String key) {
+        if (spillDir == null) {
+            return null;
+        }
+        Path path = new File(spillDir, key + SPILL_SUFFIX).toPath();
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            // Touch the file so trimming removes the least recently used entries first
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return decode(bytes);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable outline cache entry {}: {}", key, e.getMessage());
+            path.toFile().delete();
+            return null;
+        }
+    }
+
+    private void writeSpill(String key, GlyphOutline outline) {
+        if (spillDir == null) {
+            return;
+        }
+        File target = new File(spillDir, key + SPILL_SUFFIX);
+        if (target.exists()) {
+            return;
+        }
+        try {
+            byte[] bytes = encode(outline);
+            File temp = File.createTempFile(key, ".tmp", spillDir);
+            Files.write(temp.toPath(), bytes);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            if (spillBytes.addAndGet(bytes.length) > maxSpillBytes) {
+                trimSpill();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to spill outline cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the oldest spilled entries until the directory is back to 90% of its limit.
+     */
+    private synchronized void trimSpill() {
+        if (spillBytes.get() <= maxSpillBytes) {
+            return;
+        }
+        File[] files = listSpillFiles();
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        long target = maxSpillBytes / 10 * 9;
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        for (File file : files) {
+            if (total <= target) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+        spillBytes.set(total);
+    }
+
+    private File[] listSpillFiles() {
+        File[] files = spillDir.listFiles((dir, name) -> name.endsWith(SPILL_SUFFIX));
+        return files != null ? files : new File[0];
+    }
+
+    private static byte[] encode(GlyphOutline outline) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SPILL_MAGIC);
+            out.writeInt(outline.getWidth());
+            out.writeInt(outline.getHeight());
+            out.writeInt(outline.getOps().length);
+            out.write(outline.getOps());
+            out.writeInt(outline.getCoords().length);
+            for (double coord : outline.getCoords()) {
+                out.writeDouble(coord);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static GlyphOutline decode(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != SPILL_MAGIC) {
+                throw new IOException("Not an outline cache entry");
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            byte[] ops = new byte[in.readInt()];
+            in.readFully(ops);
+            double[] coords = new double[in.readInt()];
+            for (int i = 0; i < coords.length; i++) {
+                coords[i] = in.readDouble();
+            }
+            return new GlyphOutline(width, height, ops, coords);
+        }
+    }
+
+    /**
+     * @return Lookups answered from the heap
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Lookups answered from the spill directory
+     */
+    public long getSpillHits() {
+        return spillHits.get();
+    }
+
+    /**
+     * @return Lookups that had to trace the glyph
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of outlines currently on the heap
+     */
+    public int getHeapEntries() {
+        synchronized (heap) {
+            return heap.size();
+        }
+    }
+
+    /**
+     * @return Total size of the spill directory in bytes
+     */
+    public long getSpillBytes() {
+        return spillBytes.get();
+    }
+}
@@ -0,0 +1,264 @@
+package backend.vectorize;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and writes glyph outlines in the SVG dialect emitted by {@code potrace -s}.
+ *
+ * Potrace writes one group whose transform maps its integer path coordinates (tenths of a
+ * pixel, y pointing up) back onto the bitmap's viewBox. Outlines are written in exactly the
+ * same shape, so FontForge imports SVGs from either vectorizer identically.
+ */
+public final class PotraceSvg {
+
+    private static final Pattern VIEW_BOX = Pattern.compile(
+        "viewBox=\"\\s*([-\\d.eE]+)[\\s,]+([-\\d.eE]+)[\\s,]+([-\\d.eE]+)[\\s,]+([-\\d.eE]+)\\s*\"");
+    private static final Pattern TRANSLATE = Pattern.compile(
+        "translate\\(\\s*([-\\d.eE]+)[\\s,]+([-\\d.eE]+)\\s*\\)");
+    private static final Pattern SCALE = Pattern.compile(
+        "scale\\(\\s*([-\\d.eE]+)[\\s,]+([-\\d.eE]+)\\s*\\)");
+    private static final Pattern PATH_DATA = Pattern.compile("\\sd=\"([^\"]*)\"");
+
+    private PotraceSvg() {
+    }
+
+    /**
+     * Parses a Potrace SVG document into an outline in bitmap pixel coordinates.
+     *
+     * @param svg The SVG document text
+     * @return The parsed outline
+     * @throws IOException If the document is not in the expected Potrace format
+     */
+    public static GlyphOutline read(String svg) throws IOException {
+        Matcher viewBox = VIEW_BOX.matcher(svg);
+        if (!viewBox.find()) {
+            throw new IOException("Potrace SVG has no viewBox");
+        }
+        int width = (int) Math.round(Double.parseDouble(viewBox.group(3)));
+        int height = (int) Math.round(Double.parseDouble(viewBox.group(4)));
+
+        double tx = 0, ty = 0, sx = 1, sy = 1;
+        Matcher translate = TRANSLATE.matcher(svg);
+        if (translate.find()) {
+            tx = Double.parseDouble(translate.group(1));
+            ty = Double.parseDouble(translate.group(2));
+        }
+        Matcher scale = SCALE.matcher(svg);
+        if (scale.find()) {
+            sx = Double.parseDouble(scale.group(1));
+            sy = Double.parseDouble(scale.group(2));
+        }
+
+        GlyphOutline.Builder builder = new GlyphOutline.Builder(width, height);
+        Matcher path = PATH_DATA.matcher(svg);
+        while (path.find()) {
+            new PathParser(path.group(1), builder, tx, ty, sx, sy).parse();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Serializes an outline as a Potrace-style SVG document.
+     *
+     * @param outline The outline to write
+     * @return The SVG document text
+     */
+    public static String write(GlyphOutline outline) {
+        int width = outline.getWidth();
+        int height = outline.getHeight();
+        StringBuilder sb = new StringBuilder(256 + outline.getCoords().length * 6);
+        sb.append("<?xml version=\"1.0\" standalone=\"no\"?>\n");
+        sb.append(String.format(Locale.ROOT,
+            "<svg version=\"1.0\" xmlns=\"http://www.w3.org/2000/svg\"%n"
+                + " width=\"%d.000000pt\" height=\"%d.000000pt\" viewBox=\"0 0 %d.000000 %d.000000\"%n"
+                + " preserveAspectRatio=\"xMidYMid meet\">%n", width, height, width, height));
+        sb.append(String.format(Locale.ROOT,
+            "<g transform=\"translate(0.000000,%d.000000) scale(0.100000,-0.100000)\"%n"
+                + "fill=\"#000000\" stroke=\"none\">%n", height));
+        sb.append("<path d=\"");
+
+        byte[] ops = outline.getOps();
+        double[] c = outline.getCoords();
+        int ci = 0;
+        for (int i = 0; i < ops.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            switch (ops[i]) {
+                case GlyphOutline.MOVE_TO:
+                    sb.append('M');
+                    appendPoint(sb, c[ci++], c[ci++], height);
+                    break;
+                case GlyphOutline.LINE_TO:
+                    sb.append('L');
+                    appendPoint(sb, c[ci++], c[ci++], height);
+                    break;
+                case GlyphOutline.CURVE_TO:
+                    sb.append('C');
+                    appendPoint(sb, c[ci++], c[ci++], height);
+                    sb.append(' ');
+                    appendPoint(sb, c[ci++], c[ci++], height);
+                    sb.append(' ');
+                    appendPoint(sb, c[ci++], c[ci++], height);
+                    break;
+                default:
+                    sb.append('z');
+                    break;
+            }
+        }
+        sb.append("\"/>\n</g>\n</svg>\n");
+        return sb.toString();
+    }
+
+    private static void appendPoint(StringBuilder sb, double x, double y, int height) {
+        sb.append(Math.round(x * 10)).append(' ').append(Math.round((height - y) * 10));
+    }
+
+    /**
+     * Minimal SVG path data parser covering the commands Potrace emits (M, L, C, Z and their
+     * relative forms) plus H and V, including implicitly repeated commands.
+     */
+    private static final class PathParser {
+
+        private final String d;
+        private final GlyphOutline.Builder builder;
+        private final double tx, ty, sx, sy;
+        private int pos;
+        private double x, y, startX, startY;
+
+        PathParser(String d, GlyphOutline.Builder builder, double tx, double ty, double sx, double sy) {
+            this.d = d;
+            this.builder = builder;
+            this.tx = tx;
+            this.ty = ty;
+            this.sx = sx;
+            this.sy = sy;
+        }
+
+        void parse() throws IOException {
+            char command = 0;
+            while (true) {
+                skipSeparators();
+                if (pos >= d.length()) {
+                    return;
+                }
+                char ch = d.charAt(pos);
+                if (Character.isLetter(ch)) {
+                    command = ch;
+                    pos++;
+                } else if (command == 0) {
+                    throw new IOException("Path data does not start with a command: " + d);
+                }
+
+                boolean relative = Character.isLowerCase(command);
+                switch (Character.toUpperCase(command)) {
+                    case 'M': {
+                        double nx = number(), ny = number();
+                        x = relative ? x + nx : nx;
+                        y = relative ? y + ny : ny;
+                        startX = x;
+                        startY = y;
+                        builder.moveTo(mapX(x), mapY(y));
+                        // Coordinates following a moveto are implicit linetos
+                        command = relative ? 'l' : 'L';
+                        break;
+                    }
+                    case 'L': {
+                        double nx = number(), ny = number();
+                        x = relative ? x + nx : nx;
+                        y = relative ? y + ny : ny;
+                        builder.lineTo(mapX(x), mapY(y));
+                        break;
+                    }
+                    case 'H': {
+                        double nx = number();
+                        x = relative ? x + nx : nx;
+                        builder.lineTo(mapX(x), mapY(y));
+                        break;
+                    }
+                    case 'V': {
+                        double ny = number();
+                        y = relative ? y + ny : ny;
+                        builder.lineTo(mapX(x), mapY(y));
+                        break;
+                    }
+                    case 'C': {
+                        double x1 = number(), y1 = number();
+                        double x2 = number(), y2 = number();
+                        double nx = number(), ny = number();
+                        if (relative) {
+                            x1 += x;
+                            y1 += y;
+                            x2 += x;
+                            y2 += y;
+                            nx += x;
+                            ny += y;
+                        }
+                        builder.curveTo(mapX(x1), mapY(y1), mapX(x2), mapY(y2), mapX(nx), mapY(ny));
+                        x = nx;
+                        y = ny;
+                        break;
+                    }
+                    case 'Z':
+                        builder.closePath();
+                        x = startX;
+                        y = startY;
+                        command = 0;
+                        break;
+                    default:
+                        throw new IOException("Unsupported path command '" + command + "'");
+                }
+            }
+        }
+
+        private double mapX(double px) {
+            return tx + sx * px;
+        }
+
+        private double mapY(double py) {
+            return ty + sy * py;
+        }
+
+        private void skipSeparators() {
+            while (pos < d.length()) {
+                char ch = d.charAt(pos);
+                if (ch != ' ' && ch != ',' && ch != '\n' && ch != '\r' && ch != '\t') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private double number() throws IOException {
+            skipSeparators();
+            int start = pos;
+            if (pos < d.length() && (d.charAt(pos) == '-' || d.charAt(pos) == '+')) {
+                pos++;
+            }
+            while (pos < d.length()) {
+                char ch = d.charAt(pos);
+                if (Character.isDigit(ch) || ch == '.') {
+                    pos++;
+                } else if ((ch == 'e' || ch == 'E') && pos + 1 < d.length()) {
+                    pos++;
+                    if (d.charAt(pos) == '-' || d.charAt(pos) == '+') {
+                        pos++;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (start == pos) {
+                throw new IOException("Expected a number at offset " + start + " of path data");
+            }
+            try {
+                return Double.parseDouble(d.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed number in path data: " + d.substring(start, pos), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package backend.vectorize;
+
+import backend.pipeline.ProcessDeadline;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link GlyphVectorizer} backed by the external Potrace executable.
+ *
+ * Two modes are supported:
+ * - pipe (default): the glyph is streamed to Potrace's stdin as a 1-bit PBM and the SVG is
+ *   read back from its stdout, so tracing touches no files at all
+ * - file: the glyph is written as a 1-bit BMP into the job directory and Potrace writes an SVG next
+ *   to it, for Potrace builds that cannot read stdin
+ *
+ * Every run has a deadline; Potrace processes that exceed it are killed and the glyph fails
+ * with a {@link ProcessDeadline.ExpiredException}.
+ */
+public class PotraceVectorizer implements GlyphVectorizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PotraceVectorizer.class);
+
+    private static final int BMP_HEADER_SIZE = 14;
+    private static final int BMP_INFO_SIZE = 40;
+
+    private final String potracePath;
+    private final boolean usePipes;
+    private final long timeoutMillis;
+
+    /**
+     * @param potracePath Resolved Potrace executable
+     * @param usePipes true to stream PBM/SVG over stdin/stdout, false to go through files
+     * @param timeoutMillis Time a single Potrace run may take before it is killed
+     */
+    public PotraceVectorizer(String potracePath, boolean usePipes, long timeoutMillis) {
+        this.potracePath = potracePath;
+        this.usePipes = usePipes;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String getSettings() {
+        // Pipe and file mode run the same command line and produce the same outlines
+        return "potrace " + potracePath + " -s threshold=" + Ink.describe();
+    }
+
+    @Override
+    public GlyphOutline vectorize(GlyphBitmap glyph, File scratchDir, String glyphName)
+        throws IOException, InterruptedException {
+        return usePipes ? vectorizeOverPipes(glyph, glyphName) : vectorizeOverFiles(glyph, scratchDir, glyphName);
+    }
+
+    private GlyphOutline vectorizeOverPipes(GlyphBitmap glyph, String glyphName)
+        throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(
+            potracePath,
+            "-s",          // output as SVG
+            "-o", "-",     // to stdout
+            "-"            // from stdin
+        );
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        logger.debug("Running Potrace over pipes for glyph: {}", glyphName);
+
+        Process proc = pb.start();
+        try (ProcessDeadline deadline = ProcessDeadline.start(proc, timeoutMillis, "Potrace for glyph " + glyphName)) {
+            byte[] svg;
+            try {
+                // Potrace reads its whole input before writing any output, so feeding stdin to
+                // completion before reading stdout cannot deadlock
+                try (OutputStream stdin = proc.getOutputStream()) {
+                    stdin.write(toPbm(glyph));
+                }
+                try (InputStream stdout = proc.getInputStream()) {
+                    svg = stdout.readAllBytes();
+                }
+            } catch (IOException e) {
+                // A killed process breaks its pipes; report the timeout rather than the broken pipe
+                deadline.check();
+                throw e;
+            }
+            int exitCode = deadline.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Potrace process failed with exit code " + exitCode + " for glyph: " + glyphName);
+            }
+            return PotraceSvg.read(new String(svg, StandardCharsets.UTF_8));
+        }
+    }
+
+    private GlyphOutline vectorizeOverFiles(GlyphBitmap glyph, File scratchDir, String glyphName)
+        throws IOException, InterruptedException {
+        // Write the binarized glyph as a 1-bit BMP
+        File bmpFile = new File(scratchDir, glyphName + ".bmp");
+        Files.write(bmpFile.toPath(), toBmp(glyph));
+
+        File svgFile = new File(scratchDir, glyphName + ".potrace.svg");
+        try {
+            ProcessBuilder pb = new ProcessBuilder(
+                potracePath,
+                "-s", bmpFile.getAbsolutePath(),  // output as SVG
+                "-o", svgFile.getAbsolutePath()
+            );
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            logger.debug("Running Potrace for file: {}", bmpFile.getName());
+
+            Process proc = pb.start();
+            int exitCode;
+            try (ProcessDeadline deadline = ProcessDeadline.start(proc, timeoutMillis, "Potrace for file " + bmpFile.getName())) {
+                exitCode = deadline.waitFor();
+            }
+
+            if (exitCode != 0 || !svgFile.exists()) {
+                throw new IOException("Potrace process failed with exit code " + exitCode + " for file: " + bmpFile.getName());
+            }
+            return PotraceSvg.read(new String(Files.readAllBytes(svgFile.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            // Cleanup temporary files
+            if (!bmpFile.delete()) {
+                logger.debug("Failed to delete temporary BMP file: {}", bmpFile.getName());
+            }
+            svgFile.delete();
+        }
+    }
+
+    /**
+     * Encodes the glyph as a binary PBM (P4): one bit per pixel, 1 for ink, rows padded to bytes.
+     */
+    static byte[] toPbm(GlyphBitmap glyph) {
+        int width = glyph.getWidth();
+        int height = glyph.getHeight();
+        int rowBytes = (width + 7) / 8;
+        byte[] header = ("P4\n" + width + " " + height + "\n").getBytes(StandardCharsets.US_ASCII);
+
+        byte[] pbm = Arrays.copyOf(header, header.length + rowBytes * height);
+        for (int y = 0; y < height; y++) {
+            glyph.packRow(y, pbm, header.length + y * rowBytes);
+        }
+        return pbm;
+    }
+
+    /**
+     * Encodes the glyph as a 1-bit BMP with a white/black palette, rows bottom-up and padded
+     * to four bytes.
+     */
+    static byte[] toBmp(GlyphBitmap glyph) {
+        int width = glyph.getWidth();
+        int height = glyph.getHeight();
+        int rowBytes = ((width + 31) / 32) * 4;
+        int pixelOffset = BMP_HEADER_SIZE + BMP_INFO_SIZE + 8;
+
+        ByteBuffer bmp = ByteBuffer.allocate(pixelOffset + rowBytes * height).order(ByteOrder.LITTLE_ENDIAN);
+        bmp.put((byte) 'B').put((byte) 'M').putInt(bmp.capacity()).putInt(0).putInt(pixelOffset);
+        bmp.putInt(BMP_INFO_SIZE).putInt(width).putInt(height)
+            .putShort((short) 1).putShort((short) 1)    // one plane, one bit per pixel
+            .putInt(0).putInt(rowBytes * height)        // uncompressed
+            .putInt(2835).putInt(2835)                  // 72 dpi
+            .putInt(2).putInt(0);
+        bmp.putInt(0x00FFFFFF).putInt(0x00000000);      // palette: 0 = paper, 1 = ink
+
+        byte[] pixels = bmp.array();
+        for (int y = 0; y < height; y++) {
+            glyph.packRow(y, pixels, pixelOffset + (height - 1 - y) * rowBytes);
+        }
+        return pixels;
+    }
+}
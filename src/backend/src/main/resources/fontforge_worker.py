@@ -0,0 +1,53 @@
+import sys
+import os
+
+def serve(script_dir):
+    """
+    Resident variant of generate_font.py for the backend's FontForge worker pool.
+
+    Instead of building one font and exiting, the worker keeps the FontForge
+    interpreter warm and reads one command per line from stdin:
+
+    - PING                            -> replies OK (used as a health check)
+    - BUILD<TAB>svg_dir<TAB>output    -> builds output from svg_dir, replies OK or ERR
+
+    FontForge itself may print to stdout, so every reply line starts with a
+    marker the backend can tell apart from FontForge's own output.
+
+    Parameters:
+    -----------
+    script_dir : str
+        Directory containing generate_font.py
+    """
+    sys.path.insert(0, script_dir)
+    from generate_font import create_font
+
+    reply("OK ready")
+    for line in sys.stdin:
+        parts = line.rstrip("\n").split("\t")
+        command = parts[0]
+        if command == "PING":
+            reply("OK")
+        elif command == "BUILD" and len(parts) == 3:
+            try:
+                create_font(parts[1], parts[2])
+                reply("OK")
+            except Exception as e:
+                reply("ERR " + str(e).replace("\n", " "))
+        elif command == "EXIT":
+            reply("OK")
+            break
+        else:
+            reply("ERR unknown command: " + command)
+
+def reply(message):
+    sys.stdout.write(REPLY_MARKER + message + "\n")
+    sys.stdout.flush()
+
+REPLY_MARKER = "@@FFW "
+
+if __name__ == "__main__":
+    if len(sys.argv) < 2:
+        print("Usage: fontforge_worker.py <script_dir>")
+        sys.exit(1)
+    serve(sys.argv[1])
@@ -31,6 +31,8 @@ def create_font(svg_dir, output_path):
                     glyph = font.createChar(char_code)
                     glyph.importOutlines(os.path.join(svg_dir, file))
     font.generate(output_path)
+    # Release the font so long-lived worker processes do not accumulate memory
+    font.close()
     print("Font generated at:", output_path)
 
 if __name__ == "__main__":
@@ -0,0 +1,176 @@
+package backend.font;
+
+import static backend.font.TestFonts.buildFont;
+import static backend.font.TestFonts.checksum;
+import static backend.font.TestFonts.readTables;
+import static backend.font.TestFonts.tag;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Subsets fonts built with {@link TrueTypeWriter} and decodes the results independently of
+ * {@link FontSubsetter}: kept and emptied glyphs, the rebuilt cmap and the sfnt checksums.
+ */
+class FontSubsetterTest {
+
+    private static final int SFNT_CHECKSUM_MAGIC = 0xB1B0AFBA;
+
+    @Test
+    void subsetKeepsOnlyRequestedGlyphs() throws Exception {
+        byte[] font = buildFont('A', 'B', 'C', 'D');
+
+        byte[] subset = FontSubsetter.subset(font, Set.of((int) 'A', (int) 'C', (int) 'z'));
+
+        SortedMap<String, byte[]> tables = readTables(subset);
+        assertValidSfnt(subset);
+        assertEquals(1, ByteBuffer.wrap(tables.get("head")).getShort(50), "indexToLocFormat");
+        // Glyph ids are preserved: .notdef, then A, B, C, D in code point order
+        int[] lengths = glyphLengths(tables);
+        assertEquals(5, lengths.length);
+        assertTrue(lengths[1] > 0, "A keeps its outline");
+        assertEquals(0, lengths[2], "B is emptied");
+        assertTrue(lengths[3] > 0, "C keeps its outline");
+        assertEquals(0, lengths[4], "D is emptied");
+
+        Map<Integer, Integer> expected = Map.of((int) 'A', 1, (int) 'C', 3);
+        assertEquals(expected, readCmap(tables.get("cmap"), 3, 1));
+        assertEquals(expected, readCmap(tables.get("cmap"), 0, 3));
+        assertEquals(2, ByteBuffer.wrap(tables.get("cmap")).getShort(2), "no format 12 subtables");
+    }
+
+    @Test
+    void subsetWritesFormat12ForSupplementaryCodePoints() throws Exception {
+        // The writer only maps the BMP, so give glyph 2 a supplementary code point by hand
+        SortedMap<String, byte[]> source = readTables(buildFont('A', 'B', 'C'));
+        source.put("cmap", format12Cmap(new int[][] {{'A', 'A', 1}, {0x1F600, 0x1F600, 2}, {'C', 'C', 3}}));
+        byte[] font = SfntWriter.write(source);
+
+        byte[] subset = FontSubsetter.subset(font, Set.of((int) 'A', 0x1F600));
+
+        SortedMap<String, byte[]> tables = readTables(subset);
+        assertValidSfnt(subset);
+        int[] lengths = glyphLengths(tables);
+        assertTrue(lengths[1] > 0);
+        assertTrue(lengths[2] > 0);
+        assertEquals(0, lengths[3]);
+        assertEquals(Map.of((int) 'A', 1), readCmap(tables.get("cmap"), 3, 1));
+        assertEquals(Map.of((int) 'A', 1, 0x1F600, 2), readCmap(tables.get("cmap"), 3, 10));
+        assertEquals(Map.of((int) 'A', 1, 0x1F600, 2), readCmap(tables.get("cmap"), 0, 4));
+    }
+
+    /**
+     * Checks the table directory checksums and the whole-file checksum set by checkSumAdjustment.
+     */
+    private static void assertValidSfnt(byte[] font) {
+        ByteBuffer in = ByteBuffer.wrap(font);
+        int numTables = in.getShort(4) & 0xFFFF;
+        for (int i = 0; i < numTables; i++) {
+            int entry = 12 + 16 * i;
+            String tag = tag(in, entry);
+            int offset = in.getInt(entry + 8);
+            int length = in.getInt(entry + 12);
+            assertEquals(0, offset % 4, tag + " offset alignment");
+            byte[] data = Arrays.copyOfRange(font, offset, offset + length);
+            if (tag.equals("head")) {
+                ByteBuffer.wrap(data).putInt(8, 0);
+            }
+            assertEquals(checksum(data), in.getInt(entry + 4), tag + " checksum");
+        }
+        assertEquals(SFNT_CHECKSUM_MAGIC, checksum(font), "checkSumAdjustment");
+    }
+
+    /**
+     * @return Length of every glyph's outline data, from the loca table
+     */
+    private static int[] glyphLengths(SortedMap<String, byte[]> tables) {
+        boolean longOffsets = ByteBuffer.wrap(tables.get("head")).getShort(50) != 0;
+        int numGlyphs = ByteBuffer.wrap(tables.get("maxp")).getShort(4) & 0xFFFF;
+        ByteBuffer loca = ByteBuffer.wrap(tables.get("loca"));
+        int[] lengths = new int[numGlyphs];
+        for (int i = 0; i < numGlyphs; i++) {
+            lengths[i] = longOffsets
+                ? loca.getInt(4 * i + 4) - loca.getInt(4 * i)
+                : 2 * ((loca.getShort(2 * i + 2) & 0xFFFF) - (loca.getShort(2 * i) & 0xFFFF));
+        }
+        assertEquals(tables.get("glyf").length,
+            longOffsets ? loca.getInt(4 * numGlyphs) : 2 * (loca.getShort(2 * numGlyphs) & 0xFFFF));
+        return lengths;
+    }
+
+    /**
+     * Decodes the subtable of one encoding record; format 4 with zero idRangeOffsets, as the
+     * subsetter writes it, or format 12.
+     */
+    private static Map<Integer, Integer> readCmap(byte[] cmap, int platformId, int encodingId) {
+        ByteBuffer in = ByteBuffer.wrap(cmap);
+        int subtable = -1;
+        for (int i = 0; i < (in.getShort(2) & 0xFFFF); i++) {
+            int record = 4 + 8 * i;
+            if (in.getShort(record) == platformId && in.getShort(record + 2) == encodingId) {
+                subtable = in.getInt(record + 4);
+            }
+        }
+        assertTrue(subtable >= 0, "no cmap record " + platformId + "/" + encodingId);
+
+        Map<Integer, Integer> mapping = new HashMap<>();
+        int format = in.getShort(subtable);
+        if (format == 4) {
+            int segCount = (in.getShort(subtable + 6) & 0xFFFF) / 2;
+            int ends = subtable + 14;
+            int starts = ends + 2 * segCount + 2;
+            int deltas = starts + 2 * segCount;
+            int rangeOffsets = deltas + 2 * segCount;
+            assertEquals(0xFFFF, in.getShort(ends + 2 * (segCount - 1)) & 0xFFFF, "final segment");
+            for (int segment = 0; segment < segCount - 1; segment++) {
+                assertEquals(0, in.getShort(rangeOffsets + 2 * segment));
+                int start = in.getShort(starts + 2 * segment) & 0xFFFF;
+                int end = in.getShort(ends + 2 * segment) & 0xFFFF;
+                for (int codepoint = start; codepoint <= end; codepoint++) {
+                    mapping.put(codepoint, (codepoint + in.getShort(deltas + 2 * segment)) & 0xFFFF);
+                }
+            }
+        } else {
+            assertEquals(12, format);
+            assertEquals(16 + 12 * in.getInt(subtable + 12), in.getInt(subtable + 4), "format 12 length");
+            for (int group = 0; group < in.getInt(subtable + 12); group++) {
+                int entry = subtable + 16 + 12 * group;
+                for (int codepoint = in.getInt(entry); codepoint <= in.getInt(entry + 4); codepoint++) {
+                    mapping.put(codepoint, in.getInt(entry + 8) + codepoint - in.getInt(entry));
+                }
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * @param groups {start code point, end code point, start glyph}
+     * @return A cmap with a single format 12 subtable under the Windows full Unicode encoding
+     */
+    private static byte[] format12Cmap(int[][] groups) {
+        ByteBuffer cmap = ByteBuffer.allocate(12 + 16 + 12 * groups.length);
+        cmap.putShort((short) 0);
+        cmap.putShort((short) 1);
+        cmap.putShort((short) 3);
+        cmap.putShort((short) 10);
+        cmap.putInt(12);
+        cmap.putShort((short) 12);
+        cmap.putShort((short) 0);
+        cmap.putInt(16 + 12 * groups.length);
+        cmap.putInt(0);
+        cmap.putInt(groups.length);
+        for (int[] group : groups) {
+            cmap.putInt(group[0]);
+            cmap.putInt(group[1]);
+            cmap.putInt(group[2]);
+        }
+        return cmap.array();
+    }
+}
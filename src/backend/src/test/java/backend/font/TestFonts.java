@@ -0,0 +1,63 @@
+package backend.font;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds small test fonts and reads their table directories, independently of the encoders under
+ * test.
+ */
+final class TestFonts {
+
+    private TestFonts() {
+    }
+
+    /**
+     * @return A font with one filled glyph per character, each a different size
+     */
+    static byte[] buildFont(char... characters) {
+        TrueTypeWriter writer = new TrueTypeWriter("Test");
+        int size = 100;
+        for (char character : characters) {
+            TrueTypeWriter.Glyph glyph = new TrueTypeWriter.Glyph(600);
+            TrueTypeWriter.Contour contour = new TrueTypeWriter.Contour();
+            contour.add(100, 0, true);
+            contour.add(100, size, true);
+            contour.add(100 + size, size, false);
+            contour.add(100 + size, 0, true);
+            contour.close();
+            glyph.addContour(contour);
+            writer.addGlyph(character, glyph);
+            size += 50;
+        }
+        return writer.write();
+    }
+
+    /**
+     * @return The tables of a font, keyed by tag
+     */
+    static SortedMap<String, byte[]> readTables(byte[] font) {
+        ByteBuffer in = ByteBuffer.wrap(font);
+        int numTables = in.getShort(4) & 0xFFFF;
+        SortedMap<String, byte[]> tables = new TreeMap<>();
+        for (int i = 0; i < numTables; i++) {
+            int entry = 12 + 16 * i;
+            int offset = in.getInt(entry + 8);
+            tables.put(tag(in, entry), Arrays.copyOfRange(font, offset, offset + in.getInt(entry + 12)));
+        }
+        return tables;
+    }
+
+    static int checksum(byte[] data) {
+        return (int) SfntWriter.checksum(data, 0, data.length);
+    }
+
+    static String tag(ByteBuffer in, int entry) {
+        byte[] tag = new byte[4];
+        in.get(entry, tag);
+        return new String(tag, StandardCharsets.US_ASCII);
+    }
+}
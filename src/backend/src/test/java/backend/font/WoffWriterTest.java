@@ -0,0 +1,91 @@
+package backend.font;
+
+import static backend.font.TestFonts.buildFont;
+import static backend.font.TestFonts.readTables;
+import static backend.font.TestFonts.tag;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.zip.Inflater;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Decodes the output of {@link WoffWriter} and compares it with the sfnt it was converted from.
+ */
+class WoffWriterTest {
+
+    @Test
+    void woffDecodesToTheOriginalTables() throws Exception {
+        byte[] font = buildFont('A', 'B', 'C', 'D');
+        SortedMap<String, byte[]> tables = readTables(font);
+        Map<String, Integer> checksums = tableChecksums(font);
+
+        byte[] woff = WoffWriter.write(font);
+
+        ByteBuffer in = ByteBuffer.wrap(woff);
+        assertEquals(0x774F4646, in.getInt(0), "signature");
+        assertEquals(in.getInt(4), ByteBuffer.wrap(font).getInt(0), "flavor");
+        assertEquals(woff.length, in.getInt(8), "length");
+        int numTables = in.getShort(12) & 0xFFFF;
+        assertEquals(tables.size(), numTables);
+        assertEquals(font.length, in.getInt(16), "totalSfntSize");
+
+        Map<String, byte[]> decoded = new HashMap<>();
+        for (int i = 0; i < numTables; i++) {
+            int entry = 44 + 20 * i;
+            String tag = tag(in, entry);
+            int offset = in.getInt(entry + 4);
+            int compLength = in.getInt(entry + 8);
+            int origLength = in.getInt(entry + 12);
+            assertEquals(0, offset % 4, tag + " offset alignment");
+            assertTrue(compLength <= origLength, tag + " compLength");
+            assertTrue(offset + compLength <= woff.length, tag + " lies inside the file");
+            assertEquals(checksums.get(tag), in.getInt(entry + 16), tag + " origChecksum");
+
+            byte[] data = compLength < origLength
+                ? inflate(woff, offset, compLength, origLength)
+                : Arrays.copyOfRange(woff, offset, offset + compLength);
+            assertEquals(origLength, data.length, tag + " origLength");
+            decoded.put(tag, data);
+        }
+        for (Map.Entry<String, byte[]> table : tables.entrySet()) {
+            assertArrayEquals(table.getValue(), decoded.get(table.getKey()), table.getKey());
+        }
+    }
+
+    private static Map<String, Integer> tableChecksums(byte[] font) {
+        ByteBuffer in = ByteBuffer.wrap(font);
+        Map<String, Integer> checksums = new HashMap<>();
+        for (int i = 0; i < (in.getShort(4) & 0xFFFF); i++) {
+            checksums.put(tag(in, 12 + 16 * i), in.getInt(12 + 16 * i + 4));
+        }
+        return checksums;
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length, int expectedLength) throws Exception {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(expectedLength);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+            assertTrue(inflater.finished(), "complete zlib stream");
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package backend.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import backend.config.ProcessingConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Runs the {@link StorageManager} index against a temporary storage directory, without the
+ * background sweeper: journal replay, journaling of added, updated and evicted results, the two
+ * eviction passes and the migration of the unsharded layout.
+ */
+class StorageManagerTest {
+
+    private static final int KB = 1024;
+
+    @TempDir
+    Path storageDirectory;
+
+    private ProcessingConfiguration config;
+    private File jobsDirectory;
+    private File indexFile;
+
+    @BeforeEach
+    void setUp() {
+        config = new ProcessingConfiguration();
+        config.setStorageDirectory(storageDirectory.toString());
+        config.setStorageMaxMb(1);
+        config.setStorageMaxAgeHours(1);
+        jobsDirectory = storageDirectory.resolve(JobWorkspace.JOBS_DIRECTORY).toFile();
+        indexFile = new File(jobsDirectory, "index.tsv");
+    }
+
+    @Test
+    void replaysJournalAndSkipsTruncatedLines() throws Exception {
+        String kept = UUID.randomUUID().toString();
+        String removed = UUID.randomUUID().toString();
+        String truncated = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        Files.createDirectories(jobsDirectory.toPath());
+        Files.writeString(indexFile.toPath(),
+            "+\t" + removed + "\t100\t" + now + "\t" + now + "\n"
+                + "+\t" + kept + "\t200\t" + now + "\t" + now + "\n"
+                + "-\t" + removed + "\n"
+                + "+\tnot-a-job\t1x\t0\t0\n"
+                // Cut short by a crash while appending
+                + "+\t" + truncated + "\t30\t" + now,
+            StandardCharsets.UTF_8);
+
+        StorageManager storage = open();
+
+        assertEquals(1, storage.getResultCount());
+        assertEquals(200, storage.getUsedBytes());
+        Files.createDirectories(storage.resultDirectory(kept).toPath());
+        assertEquals(storage.resultDirectory(kept), storage.find(kept));
+        assertNull(storage.find(removed));
+        assertNull(storage.find(truncated));
+        // The index was compacted to the replayed state
+        assertEquals(List.of("+\t" + kept + "\t200\t" + now + "\t" + now),
+            Files.readAllLines(indexFile.toPath()));
+    }
+
+    @Test
+    void journalsAddedUpdatedAndEvictedResults() throws Exception {
+        StorageManager storage = open();
+        String jobId = UUID.randomUUID().toString();
+        File resultDir = writeResult(storage, jobId, 10 * KB);
+
+        storage.add(jobId, resultDir);
+        assertTrue(Files.readString(indexFile.toPath()).contains("+\t" + jobId + "\t" + 10 * KB + "\t"));
+
+        Files.write(new File(resultDir, "archive.zip").toPath(), new byte[5 * KB]);
+        storage.update(jobId);
+        assertEquals(15 * KB, storage.getUsedBytes());
+
+        StorageManager reopened = open();
+        assertEquals(1, reopened.getResultCount());
+        assertEquals(15 * KB, reopened.getUsedBytes());
+
+        // Evict it by age: rewrite its record as published two hours ago
+        long old = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+        Files.writeString(indexFile.toPath(), "+\t" + jobId + "\t" + 15 * KB + "\t" + old + "\t" + old + "\n");
+        StorageManager aged = open();
+        assertEquals(1, aged.sweep());
+        assertEquals(0, open().getResultCount());
+        assertFalse(resultDir.exists());
+    }
+
+    @Test
+    void evictsByAgeThenLeastRecentlyUsed() throws Exception {
+        StorageManager storage = open();
+        String expired = UUID.randomUUID().toString();
+        writeResult(storage, expired, 10 * KB);
+        long old = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+        Files.writeString(indexFile.toPath(), "+\t" + expired + "\t" + 10 * KB + "\t" + old + "\t" + old + "\n");
+        storage = open();
+
+        // Three results of 400 KB against a 1 MB quota; the first is downloaded again last
+        List<String> jobIds = List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+            UUID.randomUUID().toString());
+        for (String jobId : jobIds) {
+            storage.add(jobId, writeResult(storage, jobId, 400 * KB));
+            Thread.sleep(5);
+        }
+        storage.touch(jobIds.get(0));
+
+        assertEquals(2, storage.sweep());
+
+        assertEquals(1, storage.getEvictions(StorageManager.Reason.AGE));
+        assertEquals(1, storage.getEvictions(StorageManager.Reason.SIZE));
+        assertNull(storage.find(expired));
+        assertFalse(storage.resultDirectory(expired).exists());
+        assertNotNull(storage.find(jobIds.get(0)));
+        assertNull(storage.find(jobIds.get(1)));
+        assertFalse(storage.resultDirectory(jobIds.get(1)).exists());
+        assertNotNull(storage.find(jobIds.get(2)));
+        assertEquals(800 * KB, storage.getUsedBytes());
+        assertEquals(2, open().getResultCount());
+    }
+
+    @Test
+    void rebuildsIndexAndMigratesUnshardedResults() throws Exception {
+        String legacy = UUID.randomUUID().toString();
+        File legacyDir = new File(jobsDirectory, legacy);
+        Files.createDirectories(legacyDir.toPath());
+        Files.write(new File(legacyDir, "output_font.ttf").toPath(), new byte[3 * KB]);
+        Files.createDirectories(new File(jobsDirectory, JobWorkspace.STAGING_PREFIX + "abandoned").toPath());
+
+        StorageManager storage = open();
+
+        File migrated = storage.find(legacy);
+        assertNotNull(migrated);
+        assertEquals(storage.resultDirectory(legacy), migrated);
+        assertFalse(legacyDir.exists());
+        assertTrue(new File(migrated, "output_font.ttf").isFile());
+        assertEquals(1, storage.getResultCount());
+        assertEquals(3 * KB, storage.getUsedBytes());
+        assertTrue(indexFile.isFile());
+        assertEquals(1, open().getResultCount());
+    }
+
+    private StorageManager open() throws IOException {
+        StorageManager storage = new StorageManager();
+        ReflectionTestUtils.setField(storage, "config", config);
+        storage.open();
+        return storage;
+    }
+
+    private static File writeResult(StorageManager storage, String jobId, int bytes) throws IOException {
+        File resultDir = storage.resultDirectory(jobId);
+        Files.createDirectories(resultDir.toPath());
+        Files.write(new File(resultDir, "output_font.ttf").toPath(), new byte[bytes]);
+        return resultDir;
+    }
+}
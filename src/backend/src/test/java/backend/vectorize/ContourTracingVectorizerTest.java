@@ -0,0 +1,142 @@
+package backend.vectorize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Traces small synthetic bitmaps with the {@link ContourTracingVectorizer} and checks the
+ * contours by their signed area and bounds.
+ */
+class ContourTracingVectorizerTest {
+
+    private final ContourTracingVectorizer vectorizer = new ContourTracingVectorizer();
+
+    @Test
+    void tracesFilledShapeAsOneContour() {
+        GlyphBitmap bitmap = new GlyphBitmap(20, 20);
+        fill(bitmap, 5, 5, 15, 15);
+
+        GlyphOutline outline = vectorizer.vectorize(bitmap, null, "square");
+
+        assertEquals(20, outline.getWidth());
+        assertEquals(20, outline.getHeight());
+        List<double[]> contours = contours(outline);
+        assertEquals(1, contours.size());
+        assertEquals(100, Math.abs(area(contours.get(0))), 5);
+        assertBounds(contours.get(0), 5, 5, 15, 15);
+    }
+
+    @Test
+    void tracesHoleWithOppositeOrientation() {
+        GlyphBitmap bitmap = new GlyphBitmap(30, 30);
+        for (int y = 5; y < 25; y++) {
+            for (int x = 5; x < 25; x++) {
+                if (x < 10 || x >= 20 || y < 10 || y >= 20) {
+                    bitmap.set(x, y);
+                }
+            }
+        }
+
+        List<double[]> contours = contours(vectorizer.vectorize(bitmap, null, "ring"));
+
+        assertEquals(2, contours.size());
+        double outer = area(contours.get(0));
+        double inner = area(contours.get(1));
+        assertTrue(Math.signum(outer) != Math.signum(inner), "outer and inner run in opposite directions");
+        assertEquals(400, Math.abs(outer), 20);
+        assertEquals(100, Math.abs(inner), 5);
+        assertBounds(contours.get(0), 5, 5, 25, 25);
+        assertBounds(contours.get(1), 10, 10, 20, 20);
+    }
+
+    @Test
+    void dropsSpecksUpToTurdSize() {
+        GlyphBitmap bitmap = new GlyphBitmap(30, 30);
+        fill(bitmap, 10, 10, 20, 20);
+        bitmap.set(2, 2);
+        bitmap.set(26, 3);
+        bitmap.set(27, 3);
+
+        List<double[]> contours = contours(vectorizer.vectorize(bitmap, null, "specks"));
+
+        assertEquals(1, contours.size());
+        assertBounds(contours.get(0), 10, 10, 20, 20);
+    }
+
+    @Test
+    void tracesEmptyBitmapAsEmptyOutline() {
+        GlyphOutline outline = vectorizer.vectorize(new GlyphBitmap(16, 24), null, "space");
+
+        assertTrue(outline.isEmpty());
+        assertEquals(16, outline.getWidth());
+        assertEquals(24, outline.getHeight());
+    }
+
+    private static void fill(GlyphBitmap bitmap, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                bitmap.set(x, y);
+            }
+        }
+    }
+
+    /**
+     * @return The on-curve points of every contour, as flat x/y arrays
+     */
+    private static List<double[]> contours(GlyphOutline outline) {
+        List<double[]> contours = new ArrayList<>();
+        List<Double> points = null;
+        double[] c = outline.getCoords();
+        int ci = 0;
+        for (byte op : outline.getOps()) {
+            switch (op) {
+                case GlyphOutline.MOVE_TO:
+                    points = new ArrayList<>();
+                    points.add(c[ci++]);
+                    points.add(c[ci++]);
+                    break;
+                case GlyphOutline.LINE_TO:
+                    points.add(c[ci++]);
+                    points.add(c[ci++]);
+                    break;
+                case GlyphOutline.CURVE_TO:
+                    ci += 4;
+                    points.add(c[ci++]);
+                    points.add(c[ci++]);
+                    break;
+                default:
+                    contours.add(points.stream().mapToDouble(Double::doubleValue).toArray());
+                    break;
+            }
+        }
+        return contours;
+    }
+
+    private static double area(double[] polygon) {
+        double twiceArea = 0;
+        int n = polygon.length / 2;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            twiceArea += polygon[2 * i] * polygon[2 * j + 1] - polygon[2 * j] * polygon[2 * i + 1];
+        }
+        return twiceArea / 2;
+    }
+
+    private static void assertBounds(double[] polygon, double x0, double y0, double x1, double y1) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < polygon.length; i += 2) {
+            minX = Math.min(minX, polygon[i]);
+            maxX = Math.max(maxX, polygon[i]);
+            minY = Math.min(minY, polygon[i + 1]);
+            maxY = Math.max(maxY, polygon[i + 1]);
+        }
+        assertEquals(x0, minX, 0.5);
+        assertEquals(y0, minY, 0.5);
+        assertEquals(x1, maxX, 0.5);
+        assertEquals(y1, maxY, 0.5);
+    }
+}
@@ -0,0 +1,70 @@
+package backend.vectorize;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Writes and reads outlines in the Potrace SVG dialect.
+ */
+class PotraceSvgTest {
+
+    @Test
+    void readsBackWrittenOutline() throws Exception {
+        GlyphOutline outline = new GlyphOutline.Builder(40, 30)
+            .moveTo(5, 5).lineTo(5, 25).curveTo(15, 28.5, 25, 28.5, 35, 25).lineTo(35, 5).closePath()
+            .moveTo(12.3, 10).lineTo(27.7, 10).lineTo(20, 18.1).closePath()
+            .build();
+
+        GlyphOutline read = PotraceSvg.read(PotraceSvg.write(outline));
+
+        assertEquals(40, read.getWidth());
+        assertEquals(30, read.getHeight());
+        assertArrayEquals(outline.getOps(), read.getOps());
+        // Coordinates are written in tenths of a pixel
+        assertArrayEquals(outline.getCoords(), read.getCoords(), 1e-9);
+    }
+
+    @Test
+    void readsBackTracedOutlineToATenthOfAPixel() throws Exception {
+        GlyphBitmap bitmap = new GlyphBitmap(24, 24);
+        for (int y = 3; y < 21; y++) {
+            for (int x = 3; x < 21; x++) {
+                if ((x - 12) * (x - 12) + (y - 12) * (y - 12) < 64) {
+                    bitmap.set(x, y);
+                }
+            }
+        }
+        GlyphOutline traced = new ContourTracingVectorizer().vectorize(bitmap, null, "disc");
+
+        GlyphOutline read = PotraceSvg.read(PotraceSvg.write(traced));
+
+        assertArrayEquals(traced.getOps(), read.getOps());
+        assertArrayEquals(traced.getCoords(), read.getCoords(), 0.05 + 1e-9);
+    }
+
+    @Test
+    void readsRelativeCommandsAsPotraceWritesThem() throws Exception {
+        String svg = "<svg version=\"1.0\" xmlns=\"http://www.w3.org/2000/svg\"\n"
+            + " width=\"20.000000pt\" height=\"20.000000pt\" viewBox=\"0 0 20.000000 20.000000\"\n"
+            + " preserveAspectRatio=\"xMidYMid meet\">\n"
+            + "<g transform=\"translate(0.000000,20.000000) scale(0.100000,-0.100000)\"\n"
+            + "fill=\"#000000\" stroke=\"none\">\n"
+            + "<path d=\"M50 150 l0 -100 100 0 c0 50 0 100 -100 100 z\"/>\n"
+            + "</g>\n</svg>\n";
+
+        GlyphOutline read = PotraceSvg.read(svg);
+
+        assertArrayEquals(new byte[] {GlyphOutline.MOVE_TO, GlyphOutline.LINE_TO, GlyphOutline.LINE_TO,
+            GlyphOutline.CURVE_TO, GlyphOutline.CLOSE}, read.getOps());
+        assertArrayEquals(new double[] {5, 5, 5, 15, 15, 15, 15, 10, 15, 5, 5, 5}, read.getCoords(), 1e-9);
+    }
+
+    @Test
+    void rejectsDocumentWithoutViewBox() {
+        assertThrows(IOException.class, () -> PotraceSvg.read("<svg><path d=\"M0 0 z\"/></svg>"));
+    }
+}
@@ -0,0 +1,415 @@
+#!/usr/bin/env python3
+"""
+End-to-end load test for the font generation endpoint.
+
+Starts the backend jar with potrace.path and fontforge.path pointed at the
+stub executables in tests/load/stubs, so no Potrace or FontForge install is
+needed and the external tools take a fixed, configurable time. Then, for each
+concurrency level, it drives uploads of synthetic glyph ZIPs to
+POST /api/v1/api/generateFont from that many concurrent clients, and reports
+latency percentiles, throughput and error rates.
+
+Every request uploads glyph images that no earlier request used, so the font
+result cache and the outline cache never short-circuit the pipeline. Use
+--repeat-upload to measure the cached path instead.
+
+Requirements:
+- Python 3.8+ (standard library only)
+- The backend jar: cd src/backend && mvn package -DskipTests
+
+Run with:
+    python tests/load/loadtest.py
+    python tests/load/loadtest.py --concurrency 1,4,16 --requests 40 \\
+        --glyphs 94 --canvas 1080 --potrace-ms 50 --fontforge-ms 800
+    python tests/load/loadtest.py --backend-arg=--processing.max-concurrent-jobs=8
+
+With --url the harness targets a backend that is already running instead of
+starting one; the stub latencies then only apply if that backend was started
+with the stubs and the STUB_* environment variables (see stubs/).
+"""
+
+import argparse
+import glob
+import json
+import os
+import random
+import shutil
+import signal
+import struct
+import subprocess
+import sys
+import tempfile
+import threading
+import time
+import urllib.error
+import urllib.request
+import uuid
+import zipfile
+import zlib
+from concurrent.futures import ThreadPoolExecutor
+from pathlib import Path
+
+PROJECT_ROOT = Path(__file__).resolve().parent.parent.parent
+STUB_DIR = Path(__file__).resolve().parent / "stubs"
+BACKEND_DIR = PROJECT_ROOT / "src" / "backend"
+GENERATE_PATH = "/api/generateFont"
+HEALTH_PATH = "/actuator/health"
+FIRST_CODEPOINT = 33  # '!'
+
+
+# ---------------------------------------------------------------------------
+# Synthetic glyph uploads
+# ---------------------------------------------------------------------------
+
+def render_glyph(size, rng):
+    """
+    Draws a glyph-like grayscale image: a few thick strokes and sometimes a
+    ring, in black on white, inside a margin.
+
+    Args:
+        size: Width and height of the canvas in pixels
+        rng: random.Random that decides the shapes
+
+    Returns:
+        The image rows as a list of bytearrays (one byte per pixel)
+    """
+    rows = [bytearray(b"\xff" * size) for _ in range(size)]
+    margin = size // 8
+    pen = max(2, size // 28)
+
+    def disc(cx, cy, r, value=b"\x00"):
+        for y in range(max(0, cy - r), min(size, cy + r + 1)):
+            dy = y - cy
+            half = int((r * r - dy * dy) ** 0.5)
+            x0, x1 = max(0, cx - half), min(size, cx + half + 1)
+            if x0 < x1:
+                rows[y][x0:x1] = value * (x1 - x0)
+
+    def stroke(x0, y0, x1, y1):
+        steps = max(abs(x1 - x0), abs(y1 - y0)) // max(1, pen // 2) + 1
+        for i in range(steps + 1):
+            t = i / steps
+            disc(int(x0 + (x1 - x0) * t), int(y0 + (y1 - y0) * t), pen // 2)
+
+    def point():
+        return rng.randint(margin, size - margin), rng.randint(margin, size - margin)
+
+    for _ in range(rng.randint(2, 4)):
+        stroke(*point(), *point())
+    if rng.random() < 0.5:
+        # A ring, which gives the glyph a hole
+        r = rng.randint(size // 10, size // 5)
+        cx = rng.randint(margin + r, size - margin - r)
+        cy = rng.randint(margin + r, size - margin - r)
+        disc(cx, cy, r)
+        disc(cx, cy, max(1, r - pen), b"\xff")
+    return rows
+
+
+def encode_png(rows):
+    """
+    Encodes 8-bit grayscale rows as a PNG file.
+
+    Args:
+        rows: Image rows as produced by render_glyph
+
+    Returns:
+        The PNG file contents
+    """
+    height, width = len(rows), len(rows[0])
+    raw = b"".join(b"\x00" + bytes(row) for row in rows)
+
+    def chunk(kind, data):
+        body = kind + data
+        return struct.pack(">I", len(data)) + body + struct.pack(">I", zlib.crc32(body) & 0xFFFFFFFF)
+
+    return (b"\x89PNG\r\n\x1a\n"
+            + chunk(b"IHDR", struct.pack(">IIBBBBB", width, height, 8, 0, 0, 0, 0))
+            + chunk(b"IDAT", zlib.compress(raw, 6))
+            + chunk(b"IEND", b""))
+
+
+def build_upload(seed, glyphs, canvas):
+    """
+    Builds an upload ZIP in the client's format (glyph_<codepoint>.png).
+
+    Args:
+        seed: Selects the glyph shapes; different seeds give different images
+        glyphs: Number of glyphs, starting at '!'
+        canvas: Canvas size in pixels
+
+    Returns:
+        The ZIP file contents
+    """
+    rng = random.Random(seed)
+    buffer = tempfile.SpooledTemporaryFile(max_size=64 * 1024 * 1024)
+    with zipfile.ZipFile(buffer, "w", zipfile.ZIP_DEFLATED) as zip_file:
+        for i in range(glyphs):
+            zip_file.writestr(f"glyph_{FIRST_CODEPOINT + i}.png", encode_png(render_glyph(canvas, rng)))
+    buffer.seek(0)
+    return buffer.read()
+
+
+# ---------------------------------------------------------------------------
+# Backend process
+# ---------------------------------------------------------------------------
+
+class Backend:
+    """The backend jar running against the stub executables."""
+
+    def __init__(self, jar, port, work_dir, args):
+        self.jar = jar
+        self.port = port
+        self.work_dir = work_dir
+        self.args = args
+        self.process = None
+        self.log_path = work_dir / "backend.out"
+        self.log = None
+
+    @property
+    def base_url(self):
+        return f"http://localhost:{self.port}/api/v1"
+
+    def start(self, potrace_ms, fontforge_ms, fontforge_startup_ms, timeout=90):
+        env = dict(os.environ)
+        env["STUB_POTRACE_DELAY"] = f"{potrace_ms / 1000:.3f}"
+        env["STUB_FONTFORGE_DELAY"] = f"{fontforge_ms / 1000:.3f}"
+        env["STUB_FONTFORGE_STARTUP_DELAY"] = f"{fontforge_startup_ms / 1000:.3f}"
+        command = [
+            "java", "-jar", str(self.jar),
+            f"--server.port={self.port}",
+            f"--potrace.path={STUB_DIR / 'potrace'}",
+            f"--fontforge.path={STUB_DIR / 'fontforge'}",
+            "--processing.vectorizer=potrace",
+            "--processing.font-assembler=fontforge",
+            f"--storage.directory={self.work_dir / 'fonts'}",
+            f"--storage.temp-directory={self.work_dir / 'tmp'}",
+            f"--logging.file.name={self.work_dir / 'backend.log'}",
+            "--logging.level.org.springframework.web=INFO",
+        ] + self.args
+        self.log = open(self.log_path, "wb")
+        self.process = subprocess.Popen(command, env=env, stdout=self.log, stderr=subprocess.STDOUT,
+                                        cwd=str(BACKEND_DIR))
+        deadline = time.monotonic() + timeout
+        while time.monotonic() < deadline:
+            if self.process.poll() is not None:
+                raise RuntimeError(f"Backend exited with code {self.process.returncode}, see {self.log_path}")
+            try:
+                with urllib.request.urlopen(self.base_url + HEALTH_PATH, timeout=2) as response:
+                    if response.status == 200:
+                        return
+            except (urllib.error.URLError, OSError):
+                pass
+            time.sleep(0.5)
+        self.stop()
+        raise RuntimeError(f"Backend did not become healthy within {timeout}s, see {self.log_path}")
+
+    def stop(self):
+        if self.process is not None and self.process.poll() is None:
+            self.process.send_signal(signal.SIGTERM)
+            try:
+                self.process.wait(timeout=30)
+            except subprocess.TimeoutExpired:
+                self.process.kill()
+                self.process.wait()
+        if self.log is not None:
+            self.log.close()
+
+
+def find_jar(jar):
+    if jar:
+        return Path(jar)
+    candidates = [p for p in glob.glob(str(BACKEND_DIR / "target" / "*.jar")) if not p.endswith("-plain.jar")]
+    if not candidates:
+        sys.exit("Backend jar not found; build it with: cd src/backend && mvn package -DskipTests")
+    return Path(max(candidates, key=os.path.getmtime))
+
+
+# ---------------------------------------------------------------------------
+# Load generation
+# ---------------------------------------------------------------------------
+
+def post_upload(url, upload, timeout):
+    """
+    Uploads one ZIP as multipart form field "fontZip".
+
+    Returns:
+        (HTTP status or None, error description or None, response size)
+    """
+    boundary = uuid.uuid4().hex
+    body = (f"--{boundary}\r\n"
+            f'Content-Disposition: form-data; name="fontZip"; filename="glyphs.zip"\r\n'
+            f"Content-Type: application/zip\r\n\r\n").encode() + upload + f"\r\n--{boundary}--\r\n".encode()
+    request = urllib.request.Request(url, data=body, method="POST",
+                                     headers={"Content-Type": f"multipart/form-data; boundary={boundary}"})
+    try:
+        with urllib.request.urlopen(request, timeout=timeout) as response:
+            return response.status, None, len(response.read())
+    except urllib.error.HTTPError as e:
+        e.read()
+        return e.code, f"HTTP {e.code}", 0
+    except (urllib.error.URLError, OSError) as e:
+        reason = getattr(e, "reason", e)
+        return None, type(reason).__name__, 0
+
+
+def percentile(sorted_values, fraction):
+    """Nearest-rank percentile of an ascending list."""
+    if not sorted_values:
+        return float("nan")
+    rank = max(1, int(-(-fraction * len(sorted_values) // 1)))
+    return sorted_values[min(rank, len(sorted_values)) - 1]
+
+
+def run_level(url, concurrency, uploads, timeout):
+    """
+    Sends all uploads with a fixed number of concurrent clients.
+
+    Returns:
+        A dict with the level's statistics
+    """
+    latencies = []
+    errors = {}
+    lock = threading.Lock()
+    pending = iter(uploads)
+
+    def client():
+        while True:
+            with lock:
+                upload = next(pending, None)
+            if upload is None:
+                return
+            start = time.perf_counter()
+            status, error, _ = post_upload(url, upload, timeout)
+            elapsed = time.perf_counter() - start
+            with lock:
+                if error is None:
+                    latencies.append(elapsed)
+                else:
+                    errors[error] = errors.get(error, 0) + 1
+
+    started = time.perf_counter()
+    with ThreadPoolExecutor(max_workers=concurrency) as executor:
+        for future in [executor.submit(client) for _ in range(concurrency)]:
+            future.result()
+    wall = time.perf_counter() - started
+
+    latencies.sort()
+    failed = sum(errors.values())
+    total = len(latencies) + failed
+    return {
+        "concurrency": concurrency,
+        "requests": total,
+        "succeeded": len(latencies),
+        "failed": failed,
+        "error_rate": failed / total if total else 0.0,
+        "errors": errors,
+        "wall_seconds": wall,
+        "throughput_rps": len(latencies) / wall if wall else 0.0,
+        "p50_ms": percentile(latencies, 0.50) * 1000,
+        "p95_ms": percentile(latencies, 0.95) * 1000,
+        "p99_ms": percentile(latencies, 0.99) * 1000,
+        "max_ms": (latencies[-1] if latencies else float("nan")) * 1000,
+    }
+
+
+def print_report(results, settings):
+    print()
+    print(f"Glyphs per upload: {settings['glyphs']} at {settings['canvas']} px, "
+          f"stub Potrace {settings['potrace_ms']} ms/glyph, stub FontForge {settings['fontforge_ms']} ms/font")
+    header = (f"{'conc':>5} {'reqs':>5} {'ok':>5} {'err%':>6} {'req/s':>7} {'glyph/s':>8} "
+              f"{'p50 ms':>8} {'p95 ms':>8} {'p99 ms':>8} {'max ms':>8}  errors")
+    print(header)
+    print("-" * len(header))
+    for r in results:
+        errors = ", ".join(f"{k} x{v}" for k, v in sorted(r["errors"].items())) or "-"
+        print(f"{r['concurrency']:>5} {r['requests']:>5} {r['succeeded']:>5} {r['error_rate'] * 100:>5.1f}% "
+              f"{r['throughput_rps']:>7.2f} {r['throughput_rps'] * settings['glyphs']:>8.1f} "
+              f"{r['p50_ms']:>8.0f} {r['p95_ms']:>8.0f} {r['p99_ms']:>8.0f} {r['max_ms']:>8.0f}  {errors}")
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.strip().splitlines()[0])
+    parser.add_argument("--concurrency", default="1,2,4,8",
+                        help="Comma-separated concurrency levels (default: 1,2,4,8)")
+    parser.add_argument("--requests", type=int, default=20, help="Uploads per concurrency level (default: 20)")
+    parser.add_argument("--warmup", type=int, default=3, help="Uploads sent before measuring (default: 3)")
+    parser.add_argument("--glyphs", type=int, default=40, help="Glyphs per upload, at most 94 (default: 40)")
+    parser.add_argument("--canvas", type=int, default=512, help="Glyph canvas size in pixels (default: 512)")
+    parser.add_argument("--potrace-ms", type=int, default=20, help="Stub Potrace latency per glyph (default: 20)")
+    parser.add_argument("--fontforge-ms", type=int, default=300,
+                        help="Stub FontForge latency per font build (default: 300)")
+    parser.add_argument("--fontforge-startup-ms", type=int, default=500,
+                        help="Stub FontForge resident worker start-up time (default: 500)")
+    parser.add_argument("--repeat-upload", action="store_true",
+                        help="Send the same ZIP every time, exercising the result cache")
+    parser.add_argument("--timeout", type=float, default=330, help="Per-request timeout in seconds (default: 330)")
+    parser.add_argument("--jar", help="Backend jar (default: newest jar in src/backend/target)")
+    parser.add_argument("--port", type=int, default=18080, help="Port for the started backend (default: 18080)")
+    parser.add_argument("--backend-arg", action="append", default=[],
+                        help="Extra Spring argument for the backend, e.g. --backend-arg=--processing.glyph-threads=4")
+    parser.add_argument("--url", help="Use an already running backend, e.g. http://localhost:8080/api/v1")
+    parser.add_argument("--json", help="Also write the results to this file")
+    parser.add_argument("--keep-work-dir", action="store_true", help="Keep the backend's storage and logs")
+    options = parser.parse_args()
+
+    levels = [int(level) for level in options.concurrency.split(",")]
+    if not 1 <= options.glyphs <= 94:
+        parser.error("--glyphs must be between 1 and 94")
+
+    total = options.warmup + options.requests * len(levels)
+    print(f"Generating {1 if options.repeat_upload else total} upload(s) of {options.glyphs} glyphs "
+          f"at {options.canvas} px...")
+    if options.repeat_upload:
+        uploads = [build_upload(0, options.glyphs, options.canvas)] * total
+    else:
+        uploads = [build_upload(seed, options.glyphs, options.canvas) for seed in range(total)]
+    print(f"Upload size: {len(uploads[0]) / 1024:.0f} KB")
+
+    work_dir = Path(tempfile.mkdtemp(prefix="font-loadtest-"))
+    backend = None
+    try:
+        if options.url:
+            base_url = options.url.rstrip("/")
+        else:
+            backend = Backend(find_jar(options.jar), options.port, work_dir, options.backend_arg)
+            print(f"Starting {backend.jar.name} on port {options.port} (logs in {backend.log_path})...")
+            backend.start(options.potrace_ms, options.fontforge_ms, options.fontforge_startup_ms)
+            base_url = backend.base_url
+        url = base_url + GENERATE_PATH
+
+        if options.warmup:
+            print(f"Warming up with {options.warmup} upload(s)...")
+            run_level(url, 1, uploads[:options.warmup], options.timeout)
+
+        results = []
+        offset = options.warmup
+        for level in levels:
+            print(f"Concurrency {level}: {options.requests} uploads...")
+            results.append(run_level(url, level, uploads[offset:offset + options.requests], options.timeout))
+            offset += options.requests
+
+        settings = {
+            "glyphs": options.glyphs,
+            "canvas": options.canvas,
+            "potrace_ms": options.potrace_ms,
+            "fontforge_ms": options.fontforge_ms,
+            "repeat_upload": options.repeat_upload,
+        }
+        print_report(results, settings)
+        if options.json:
+            with open(options.json, "w") as out:
+                json.dump({"settings": settings, "results": results}, out, indent=2)
+            print(f"\nResults written to {options.json}")
+        return 1 if any(r["failed"] for r in results) else 0
+    finally:
+        if backend is not None:
+            backend.stop()
+        if options.keep_work_dir:
+            print(f"Work directory kept: {work_dir}")
+        else:
+            shutil.rmtree(work_dir, ignore_errors=True)
+
+
+if __name__ == "__main__":
+    sys.exit(main())